@@ -0,0 +1,96 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Removes duplicate areas, e.g. tables found twice by a detector. An area that another, different
+ * area contains is dropped. The areas left are duplicates when their overlap ratio is at least a
+ * threshold: those are clustered transitively, and only the largest area of each cluster is kept,
+ * so the result doesn't depend on the order of the areas.
+ *
+ * Containment only drops the contained area, and doesn't join the areas that contain it: two
+ * tables that both contain a sliver of a table are both kept.
+ *
+ * Candidate duplicates are found with a spatial index, so only areas that intersect are compared.
+ */
+public final class AreaDeduplicator {
+
+    @SuppressWarnings("serial")
+    private static final class IndexedArea extends Rectangle {
+        final int index;
+
+        IndexedArea(Rectangle area, int index) {
+            super(area.getTop(), area.getLeft(), (float) area.getWidth(), (float) area.getHeight());
+            this.index = index;
+        }
+    }
+
+    private AreaDeduplicator() {
+    }
+
+    /**
+     * @return the largest area of each cluster of duplicates of the areas that no other area
+     *         contains, in their order in areas. Of areas of the same size, the first one is kept
+     */
+    public static <T extends Rectangle> List<T> deduplicate(List<T> areas, float overlapRatio) {
+        int n = areas.size();
+        RectangleSpatialIndex<IndexedArea> index = new RectangleSpatialIndex<IndexedArea>();
+        for (int i = 0; i < n; i++) {
+            index.add(new IndexedArea(areas.get(i), i));
+        }
+
+        // areas inside another one, each checked against its containers only
+        boolean[] contained = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            T area = areas.get(i);
+            for (IndexedArea other : index.intersects(area)) {
+                Rectangle container = areas.get(other.index);
+                if (other.index != i && container.contains(area) && !container.equals(area)) {
+                    contained[i] = true;
+                    break;
+                }
+            }
+        }
+
+        UnionFind clusters = new UnionFind(n);
+        for (int i = 0; i < n; i++) {
+            if (contained[i]) {
+                continue;
+            }
+            T area = areas.get(i);
+            for (IndexedArea other : index.intersects(area)) {
+                int j = other.index;
+                if (j > i && !contained[j] && isDuplicate(area, areas.get(j), overlapRatio)) {
+                    clusters.union(i, j);
+                }
+            }
+        }
+
+        // the largest area of each cluster, by the cluster's root
+        int[] kept = new int[n];
+        Arrays.fill(kept, -1);
+        for (int i = 0; i < n; i++) {
+            if (contained[i]) {
+                continue;
+            }
+            int root = clusters.find(i);
+            if (kept[root] == -1 || areas.get(i).getArea() > areas.get(kept[root]).getArea()) {
+                kept[root] = i;
+            }
+        }
+
+        List<T> rv = new ArrayList<T>();
+        for (int i = 0; i < n; i++) {
+            if (!contained[i] && kept[clusters.find(i)] == i) {
+                rv.add(areas.get(i));
+            }
+        }
+        return rv;
+    }
+
+    private static boolean isDuplicate(Rectangle a, Rectangle b, float overlapRatio) {
+        return a.equals(b) || a.overlapRatio(b) >= overlapRatio;
+    }
+}
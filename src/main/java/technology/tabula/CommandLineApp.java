@@ -7,6 +7,7 @@ import java.io.FilenameFilter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -19,11 +20,14 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.GnuParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
+import technology.tabula.detectors.CachingDetectionAlgorithm;
 import technology.tabula.detectors.DetectionAlgorithm;
 import technology.tabula.detectors.NurminenDetectionAlgorithm;
 import technology.tabula.detectors.SpreadsheetDetectionAlgorithm;
 import technology.tabula.extractors.BasicExtractionAlgorithm;
+import technology.tabula.extractors.PageTriage;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+import technology.tabula.extractors.TabularityClassifier;
 import technology.tabula.filters.PageNumberFilter;
 import technology.tabula.writers.CSVWriter;
 import technology.tabula.writers.JSONWriter;
@@ -43,6 +47,7 @@ public class CommandLineApp {
     private OutputFormat outputFormat;
     private String password;
     private TableExtractor tableExtractor;
+    private boolean silent;
 
     public CommandLineApp(Appendable defaultOutput, CommandLine line) throws ParseException {
         this.defaultOutput = defaultOutput;
@@ -50,6 +55,7 @@ public class CommandLineApp {
         this.pages = CommandLineApp.whichPages(line);
         this.outputFormat = CommandLineApp.whichOutputFormat(line);
         this.tableExtractor = CommandLineApp.createExtractor(line);
+        this.silent = line.hasOption('i');
 
         if (line.hasOption('s')) {
           this.password = line.getOptionValue('s');
@@ -159,19 +165,24 @@ public class CommandLineApp {
         PDDocument pdfDocument = null;
         try {
             pdfDocument = PDDocument.load(pdfFile);
-            PageIterator pageIterator = getPageIterator(pdfDocument);
             List<Table> tables = new ArrayList<Table>();
 
+            if (tableExtractor.usesDocumentColumnHints()) {
+                // columns are found once, from the edges of the text of all the pages: a first
+                // pass over the pages counts them, a page at a time, before the tables are extracted
+                tableExtractor.setTextColumnHints(StraightEdgeDetector.getBestDocumentEdges(
+                        selectPageAreas(getPageIterator(pdfDocument))));
+            }
+            Iterator<Page> pageIterator = selectPageAreas(getPageIterator(pdfDocument));
             while (pageIterator.hasNext()) {
-                Page page = pageIterator.next();
-
-                if (pageArea != null) {
-                    page = page.getArea(pageArea);
-                }
-
-                tables.addAll(tableExtractor.extractTables(page));
+                tables.addAll(tableExtractor.extractTables(pageIterator.next()));
             }
             writeTables(tables, outFile);
+
+            if (tableExtractor.isTriage() && !silent) {
+                System.err.println(pdfFile.getName() + ": " + tableExtractor.getTriageSummary());
+                tableExtractor.resetTriageCounts();
+            }
         } catch (IOException e) {
             throw new ParseException(e.getMessage());
         } finally {
@@ -185,6 +196,29 @@ public class CommandLineApp {
         }
     }
 
+    private Page selectPageArea(Page page) {
+        return pageArea == null ? page : page.getArea(pageArea);
+    }
+
+    private Iterator<Page> selectPageAreas(final Iterator<Page> pages) {
+        return new Iterator<Page>() {
+            @Override
+            public boolean hasNext() {
+                return pages.hasNext();
+            }
+
+            @Override
+            public Page next() {
+                return selectPageArea(pages.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
     private PageIterator getPageIterator(PDDocument pdfDocument) throws IOException {
         ObjectExtractor extractor = (this.password == null) ?
                 new ObjectExtractor(pdfDocument) :
@@ -247,11 +281,17 @@ public class CommandLineApp {
       extractor.setMethod(CommandLineApp.whichExtractionMethod(line));
       extractor.setUseLineReturns(line.hasOption('u'));
       extractor.setUseStraightEdges(line.hasOption("detect-horizontal-alignment"));
+      extractor.setUseDocumentColumnHints(!line.hasOption("horizontal-alignment-per-page"));
       extractor.setRemovePageNumbers(line.hasOption("rm-page-numbers"));
+      extractor.setDecideByExtraction(line.hasOption("decide-by-extraction"));
+      extractor.setTriage(line.hasOption("triage"));
 
       if (line.hasOption('c')) {
           extractor.setVerticalRulingPositions(parseFloatList(line.getOptionValue('c')));
       }
+      if (line.hasOption("guess-cache")) {
+          extractor.setGuessCacheDirectory(new File(line.getOptionValue("guess-cache")));
+      }
       return extractor;
     }
 
@@ -287,8 +327,11 @@ public class CommandLineApp {
         o.addOption("i", "silent", false, "Suppress all stderr output.");
         o.addOption("pn", "rm-page-numbers", false, "Attempt to remove page numbers");
         o.addOption("u", "use-line-returns", false, "Use embedded line returns in cells. (Only in spreadsheet mode.)");
-        o.addOption("ha", "detect-horizontal-alignment", false, "Detect horizontal alignment of text to improve column detection.");
+        o.addOption("ha", "detect-horizontal-alignment", false, "Detect horizontal alignment of text to improve column detection. Columns are detected once, from all the pages, unless --horizontal-alignment-per-page is given.");
+        o.addOption("hp", "horizontal-alignment-per-page", false, "With --detect-horizontal-alignment, detect the columns of each page from that page only, for documents whose pages don't share the same columns.");
         o.addOption("d", "debug", false, "Print detected table areas instead of processing.");
+        o.addOption("de", "decide-by-extraction", false, "When neither spreadsheet nor non-spreadsheet extraction is forced, decide by extracting the text of each page both ways, as older versions did, instead of only counting its rows and columns. Both decide the same way.");
+        o.addOption("t", "triage", false, "Skip pages that can't contain tables (blank, image-only or running text pages) before analyzing them, and print how many pages were skipped to stderr.");
         o.addOption(OptionBuilder.withLongOpt("batch")
             .withDescription("Convert all .pdfs in the provided directory.")
             .hasArg()
@@ -319,6 +362,11 @@ public class CommandLineApp {
                                  .hasArg()
                                  .withArgName("AREA")
                                  .create("a"));
+        o.addOption(OptionBuilder.withLongOpt("guess-cache")
+                                 .withDescription("Keep the table areas guessed with --guess for each page in DIRECTORY, and reuse them when the same pages are guessed again.")
+                                 .hasArg()
+                                 .withArgName("DIRECTORY")
+                                 .create("gc"));
         o.addOption(OptionBuilder.withLongOpt("pages")
                                  .withDescription("Comma separated list of ranges, or all. Examples: --pages 1-3,5-7, --pages 3 or --pages all. Default is --pages 1")
                                  .hasArg()
@@ -332,9 +380,15 @@ public class CommandLineApp {
       private boolean guess = false;
       private boolean useLineReturns = false;
       private boolean useStraightEdges = false;
+      private boolean useDocumentColumnHints = true;
       private boolean removePagenumbers = false;
+      private boolean decideByExtraction = false;
 
       private List<Float> verticalRulingPositions = null;
+      private List<Float> textColumnHints = null;
+      private File guessCacheDirectory = null;
+      // number of pages triaged with each decision, if pages are triaged
+      private int[] triageCounts = null;
       private ExtractionMethod method = ExtractionMethod.BASIC;
 
       public TableExtractor() {
@@ -348,6 +402,10 @@ public class CommandLineApp {
         this.guess = guess;
       }
 
+      public void setGuessCacheDirectory(File guessCacheDirectory) {
+        this.guessCacheDirectory = guessCacheDirectory;
+      }
+
       public void setUseLineReturns(boolean useLineReturns) {
         this.useLineReturns = useLineReturns;
       }
@@ -356,18 +414,93 @@ public class CommandLineApp {
         this.useStraightEdges = useStraightEdges;
       }
 
+      /**
+       * @param useDocumentColumnHints whether straight edges are detected once for whole
+       * documents, or for each page on its own
+       */
+      public void setUseDocumentColumnHints(boolean useDocumentColumnHints) {
+        this.useDocumentColumnHints = useDocumentColumnHints;
+      }
+
+      /**
+       * @return whether column hints are detected from the straight edges of the text of whole
+       * documents, and should be set with setTextColumnHints before their pages are extracted
+       */
+      public boolean usesDocumentColumnHints() {
+        // guessed areas and explicit columns don't use column hints
+        return useStraightEdges && useDocumentColumnHints && !guess && verticalRulingPositions == null;
+      }
+
+      public void setTextColumnHints(List<Float> textColumnHints) {
+        this.textColumnHints = textColumnHints;
+      }
+
       public void setRemovePageNumbers(boolean removePagenumbers) {
         this.removePagenumbers = removePagenumbers;
       }
 
+      public void setDecideByExtraction(boolean decideByExtraction) {
+        this.decideByExtraction = decideByExtraction;
+      }
+
       public void setMethod(ExtractionMethod method) {
         this.method = method;
       }
 
+      public void setTriage(boolean triage) {
+        this.triageCounts = triage ? new int[PageTriage.Decision.values().length] : null;
+      }
+
+      public boolean isTriage() {
+        return this.triageCounts != null;
+      }
+
+      public String getTriageSummary() {
+        int pages = 0;
+        for (int count : triageCounts) {
+          pages += count;
+        }
+        StringBuilder rv = new StringBuilder(pages + " pages triaged");
+        for (PageTriage.Decision decision : PageTriage.Decision.values()) {
+          rv.append(", ").append(triageCounts[decision.ordinal()]).append(" ").append(decision);
+        }
+        return rv.toString();
+      }
+
+      public void resetTriageCounts() {
+        Arrays.fill(triageCounts, 0);
+      }
+
       public List<Table> extractTables(Page page) {
           ExtractionMethod effectiveMethod = this.method;
+          PageTriage.Decision triage = null;
+          if (triageCounts != null) {
+            triage = PageTriage.triage(page).getDecision();
+            triageCounts[triage.ordinal()]++;
+            if (triage == PageTriage.Decision.NO_TABLE) {
+              return new ArrayList<Table>();
+            }
+            if (effectiveMethod == ExtractionMethod.DECIDE && triage == PageTriage.Decision.BORDERLESS) {
+              // without crossing rulings there's nothing for spreadsheet extraction to find
+              effectiveMethod = ExtractionMethod.BASIC;
+            }
+          }
+
+          List<Table> tables = extractTablesWith(effectiveMethod, page);
+          if (triage != null) {
+            for (Table table : tables) {
+              table.setPageTriage(triage);
+            }
+          }
+          return tables;
+      }
+
+      private List<Table> extractTablesWith(ExtractionMethod effectiveMethod, Page page) {
           if (effectiveMethod == ExtractionMethod.DECIDE) {
-            effectiveMethod = SpreadsheetExtractionAlgorithm.isPageTabular(page) ?
+            boolean tabular = this.decideByExtraction ?
+              SpreadsheetExtractionAlgorithm.isPageTabular(page) :
+              TabularityClassifier.isTabular(page);
+            effectiveMethod = tabular ?
               ExtractionMethod.SPREADSHEET :
               ExtractionMethod.BASIC;
           }
@@ -390,7 +523,12 @@ public class CommandLineApp {
         if (guess) {
           // guess the page areas to extract using a detection algorithm
           // currently we only have a detector that uses spreadsheets to find table areas
-          DetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+          NurminenDetectionAlgorithm nurminen = new NurminenDetectionAlgorithm();
+          DetectionAlgorithm detector = nurminen;
+          if (guessCacheDirectory != null) {
+              // areas guessed by another version of the detector, or with other settings, aren't reused
+              detector = new CachingDetectionAlgorithm(detector, nurminen.getDetectorVersion(), guessCacheDirectory);
+          }
           List<Rectangle> guesses = detector.detect(page);
           List<Table> tables = new ArrayList<Table>();
 
@@ -402,7 +540,9 @@ public class CommandLineApp {
         }
 
         if (useStraightEdges) {
-          basicExtractor.setTextColumnHints(StraightEdgeDetector.getBestPageEdges(page));
+          basicExtractor.setTextColumnHints(textColumnHints != null ?
+              textColumnHints :
+              StraightEdgeDetector.getBestPageEdges(page));
         }
 
         if (verticalRulingPositions != null) {
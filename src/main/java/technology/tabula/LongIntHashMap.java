@@ -0,0 +1,127 @@
+package technology.tabula;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open-addressing (linear probing) hash map from primitive long keys to
+ * primitive int values. No boxing, no per-entry allocation. Entries can't be removed.
+ */
+public final class LongIntHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * @return the value mapped to key, or defaultValue if there is none
+     */
+    public int get(long key, int defaultValue) {
+        int slot = this.slotOf(key);
+        return this.used[slot] ? this.values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return this.used[this.slotOf(key)];
+    }
+
+    /**
+     * @return the value previously mapped to key, or defaultValue if there was none
+     */
+    public int put(long key, int value, int defaultValue) {
+        int slot = this.slotOf(key);
+        if (this.used[slot]) {
+            int rv = this.values[slot];
+            this.values[slot] = value;
+            return rv;
+        }
+        this.used[slot] = true;
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.keys.length * LOAD_FACTOR) {
+            this.rehash(this.keys.length << 1);
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void clear() {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    private int slotOf(long key) {
+        int slot = mix(key) & this.mask;
+        while (this.used[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = this.slotOf(oldKeys[i]);
+                this.used[slot] = true;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // murmur3 finalizer, spreads packed coordinates over the low bits
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Packs two ints into a long key whose natural (signed) order is the
+     * lexicographic order of (high, low)
+     */
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | ((low ^ 0x80000000) & 0xffffffffL);
+    }
+
+    public static int unpackHigh(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int unpackLow(long key) {
+        return ((int) key) ^ 0x80000000;
+    }
+}
@@ -38,6 +38,7 @@ public class ObjectExtractor extends org.apache.pdfbox.pdfviewer.PageDrawer {
     private float minCharHeight;
     private List<TextElement> characters;
     private List<Ruling> rulings;
+    private List<Rectangle> imageAreas;
     private RectangleSpatialIndex<TextElement> spatialIndex;
     private AffineTransform pageTransform;
     public List<Shape> clippingPaths;
@@ -124,7 +125,7 @@ public class ObjectExtractor extends org.apache.pdfbox.pdfviewer.PageDrawer {
         	
         	return new Page(0, 0, w, h, pageRotation, page_number, pdPage, this.characters,
         			this.rulings, this.minCharWidth, this.minCharHeight,
-        			this.spatialIndex);
+        			this.spatialIndex, this.imageAreas);
         }
         return null;//TODO: content is empty, return null? or empty Page? or exception?
     }
@@ -167,6 +168,7 @@ public class ObjectExtractor extends org.apache.pdfbox.pdfviewer.PageDrawer {
     private void initialize() {
         this.characters = new ArrayList<TextElement>();
         this.rulings = new ArrayList<Ruling>();
+        this.imageAreas = new ArrayList<Rectangle>();
         this.pageTransform = null;
         this.spatialIndex = new RectangleSpatialIndex<TextElement>();
         this.minCharWidth = Float.MAX_VALUE;
@@ -175,7 +177,16 @@ public class ObjectExtractor extends org.apache.pdfbox.pdfviewer.PageDrawer {
 
     @Override
     public void drawImage(Image awtImage, AffineTransform at) {
-        // we just ignore images (for now)
+        // we don't draw images, but keep where they are: detectors look at them to tell
+        // whether the ruling lines extracted from the page are all there is to see
+        Shape imageShape = at.createTransformedShape(
+                new Rectangle2D.Float(0, 0, awtImage.getWidth(null), awtImage.getHeight(null)));
+        Rectangle2D bounds = this.getPageTransform().createTransformedShape(imageShape).getBounds2D()
+                .createIntersection(this.currentClippingPath());
+        if (!bounds.isEmpty()) {
+            this.imageAreas.add(new Rectangle((float) bounds.getY(), (float) bounds.getX(),
+                    (float) bounds.getWidth(), (float) bounds.getHeight()));
+        }
     }
 
     public void strokeOrFillPath(boolean isFill) {
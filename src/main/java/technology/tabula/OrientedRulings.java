@@ -0,0 +1,187 @@
+package technology.tabula;
+
+import java.awt.geom.Line2D;
+import java.util.List;
+
+/**
+ * The horizontal (or vertical) rulings of a list, with their orientation checked once and
+ * their coordinates copied into primitive arrays: position is the y of a horizontal ruling
+ * (x of a vertical one), start and end are its x1 and x2 (y1 and y2), as in Ruling.
+ *
+ * Rulings are referred to by their index in the list this was built from. This is a
+ * snapshot: changes to the rulings afterwards aren't reflected here.
+ */
+public final class OrientedRulings {
+
+    public static final int HORIZONTAL = 1;
+    public static final int VERTICAL = 2;
+
+    private final boolean vertical;
+    private final List<? extends Line2D.Float> rulings;
+    private final int size;
+    private final int[] indexes;
+    private final float[] positions, starts, ends;
+
+    /**
+     * @param rulings rulings of any orientation; only the horizontal ones (or vertical ones)
+     *                are kept. Lines that are both, because they're shorter than Utils.feq's
+     *                epsilon, count as vertical, as in Ruling.getPosition()
+     */
+    public OrientedRulings(List<? extends Line2D.Float> rulings, boolean vertical) {
+        this(rulings, vertical, true);
+    }
+
+    /**
+     * @return all of rulings, without checking their orientation
+     */
+    static OrientedRulings assumingOrientation(List<? extends Line2D.Float> rulings, boolean vertical) {
+        return new OrientedRulings(rulings, vertical, false);
+    }
+
+    private OrientedRulings(List<? extends Line2D.Float> rulings, boolean vertical, boolean filter) {
+        this.vertical = vertical;
+        this.rulings = rulings;
+
+        int n = rulings.size();
+        int[] indexes = new int[n];
+        float[] positions = new float[n], starts = new float[n], ends = new float[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            Line2D.Float r = rulings.get(i);
+            if (filter) {
+                int orientation = orientationOf(r);
+                if (orientation == 0 || ((orientation & VERTICAL) != 0) != vertical) {
+                    continue;
+                }
+            }
+            indexes[size] = i;
+            positions[size] = vertical ? r.x1 : r.y1;
+            starts[size] = vertical ? r.y1 : r.x1;
+            ends[size] = vertical ? r.y2 : r.x2;
+            size++;
+        }
+        this.size = size;
+        this.indexes = indexes;
+        this.positions = positions;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * @return HORIZONTAL, VERTICAL, both (for a line shorter than Utils.feq's epsilon
+     *         on both axes) or 0 (for an oblique line, or a point)
+     */
+    public static int orientationOf(Line2D.Float line) {
+        double dx = line.x1 - line.x2, dy = line.y1 - line.y2;
+        if (!(dx * dx + dy * dy > 0)) {
+            return 0;
+        }
+        int rv = 0;
+        if (Utils.feq(line.y1, line.y2)) {
+            rv |= HORIZONTAL;
+        }
+        if (Utils.feq(line.x1, line.x2)) {
+            rv |= VERTICAL;
+        }
+        return rv;
+    }
+
+    public boolean isVertical() {
+        return this.vertical;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the index, in the list this was built from, of the i-th ruling
+     */
+    public int getIndex(int i) {
+        return this.indexes[i];
+    }
+
+    public Line2D.Float getRuling(int i) {
+        return this.rulings.get(this.indexes[i]);
+    }
+
+    public float getPosition(int i) {
+        return this.positions[i];
+    }
+
+    public float getStart(int i) {
+        return this.starts[i];
+    }
+
+    public float getEnd(int i) {
+        return this.ends[i];
+    }
+
+    /**
+     * @return the lowest of start - amount and end + amount: the lowest coordinate along
+     *         the ruling after Ruling.expand(amount)
+     */
+    public float getExpandedMin(int i, float amount) {
+        return Math.min(this.starts[i] - amount, this.ends[i] + amount);
+    }
+
+    /**
+     * @return the highest of start - amount and end + amount: the highest coordinate along
+     *         the ruling after Ruling.expand(amount)
+     */
+    public float getExpandedMax(int i, float amount) {
+        return Math.max(this.starts[i] - amount, this.ends[i] + amount);
+    }
+
+    /**
+     * Indexes (in 0..size()) of the rulings sorted by position, then by start.
+     * The sort is stable: rulings with the same position and start keep their order.
+     */
+    public int[] sortedByPositionAndStart() {
+        long[] keys = new long[this.size];
+        int[] order = new int[this.size];
+        for (int i = 0; i < this.size; i++) {
+            // + 0f so that -0 and 0 are equal
+            keys[i] = LongIntHashMap.pack(sortableBits(this.positions[i] + 0f), sortableBits(this.starts[i] + 0f));
+            order[i] = i;
+        }
+        mergeSort(keys, order, new long[this.size], new int[this.size], 0, this.size);
+        return order;
+    }
+
+    // stable sort of keys (and values along with them) in [from, to)
+    private static void mergeSort(long[] keys, int[] values, long[] keyBuffer, int[] valueBuffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, values, keyBuffer, valueBuffer, from, middle);
+        mergeSort(keys, values, keyBuffer, valueBuffer, middle, to);
+        if (keys[middle - 1] <= keys[middle]) {
+            return;
+        }
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(values, from, valueBuffer, from, to - from);
+        int i = from, j = middle;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < middle && keyBuffer[i] <= keyBuffer[j])) {
+                keys[k] = keyBuffer[i];
+                values[k] = valueBuffer[i++];
+            }
+            else {
+                keys[k] = keyBuffer[j];
+                values[k] = valueBuffer[j++];
+            }
+        }
+    }
+
+    /**
+     * Int bits of a float that sort (as signed ints) in the same order as the float, so
+     * that floats can be packed into LongIntHashMap keys. -0f sorts before 0f: add 0f to
+     * sort them as equal.
+     */
+    public static int sortableBits(float f) {
+        int bits = java.lang.Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}
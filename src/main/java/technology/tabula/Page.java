@@ -3,8 +3,6 @@ package technology.tabula;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +21,11 @@ public class Page extends Rectangle {
     private float minCharHeight;
     private RectangleSpatialIndex<TextElement> spatial_index;
     private PDPage pdPage;
+    private List<Rectangle> imageAreas = new ArrayList<Rectangle>();
+    private TextDensityIndex textDensityIndex = null;
+    // the page an area was taken from with getArea, and whether the min char size of the area is known yet
+    private Page parent = null;
+    private boolean minCharSizeKnown = true;
 
     public Page(float top, float left, float width, float height, int rotation, int page_number, PDPage pdPage) {
         super(top, left, width, height);
@@ -50,9 +53,24 @@ public class Page extends Rectangle {
         this.spatial_index = index;
     }
 
+    /**
+     * @param imageAreas the areas images are drawn in on the page
+     */
+    public Page(float top, float left, float width, float height, int rotation, int page_number, PDPage pdPage,
+            List<TextElement> characters, List<Ruling> rulings,
+            float minCharWidth, float minCharHeight, RectangleSpatialIndex<TextElement> index,
+            List<Rectangle> imageAreas) {
+
+        this(top, left, width, height, rotation, page_number, pdPage, characters, rulings, minCharWidth, minCharHeight, index);
+        this.imageAreas = imageAreas;
+    }
+
     
+    /**
+     * Returns the part of this Page in area. Its text, rulings and images are taken from this
+     * Page when they're first needed, so areas that are only looked at in part are cheap
+     */
     public Page getArea(Rectangle area) {
-        List<TextElement> t = getText(area);
         Page rv = new Page(
                 (float) area.getTop(),
                 (float) area.getLeft(),
@@ -60,54 +78,64 @@ public class Page extends Rectangle {
                 (float) area.getHeight(),
                 rotation,
                 pageNumber,
-                pdPage,
-                t,
-                Ruling.cropRulingsToArea(getRulings(), area),
-
-                Collections.min(t, new Comparator<TextElement>() {
-                    @Override
-                    public int compare(TextElement te1, TextElement te2) {
-                        return java.lang.Float.compare(te1.width, te2.width);
-                    }}).width,
-                
-                Collections.min(t, new Comparator<TextElement>() {
-                        @Override
-                        public int compare(TextElement te1, TextElement te2) {
-                            return java.lang.Float.compare(te1.height, te2.height);
-                }}).height,
-                
-                spatial_index);
-        
-        rv.addRuling(new Ruling(
-                new Point2D.Double(rv.getLeft(), 
-                		rv.getTop()), 
-                new Point2D.Double(rv.getRight(), 
-                		rv.getTop())));
-        rv.addRuling(new Ruling(
-                new Point2D.Double(rv.getRight(), 
-                		rv.getTop()), 
-                new Point2D.Double(rv.getRight(), 
-                		rv.getBottom())));
-        rv.addRuling(new Ruling(
-                new Point2D.Double(rv.getRight(), 
-                		rv.getBottom()), 
-                new Point2D.Double(rv.getLeft(), 
-                		rv.getBottom())));
-        rv.addRuling(new Ruling(
-                new Point2D.Double(rv.getLeft(), 
-                		rv.getBottom()), 
-                new Point2D.Double(rv.getLeft(), 
-                		rv.getTop())));
- 
+                pdPage);
+        rv.parent = this;
+        rv.spatial_index = spatial_index;
+        rv.minCharSizeKnown = false;
+        rv.imageAreas = null;
         return rv;
     }
-    
+
+    // text of an area of the parent page, from the parent's index
+    private void takeTextFromParent() {
+        if (this.texts == null && this.parent != null) {
+            this.texts = this.spatial_index.contains(this);
+        }
+    }
+
+    // rulings of the parent page cropped to the area, and the four edges of the area
+    private void takeRulingsFromParent() {
+        if (this.rulings != null || this.parent == null) {
+            return;
+        }
+        this.rulings = Ruling.cropRulingsToArea(this.parent.getRulings(), this);
+        this.rulings.add(new Ruling(
+                new Point2D.Double(this.getLeft(), this.getTop()),
+                new Point2D.Double(this.getRight(), this.getTop())));
+        this.rulings.add(new Ruling(
+                new Point2D.Double(this.getRight(), this.getTop()),
+                new Point2D.Double(this.getRight(), this.getBottom())));
+        this.rulings.add(new Ruling(
+                new Point2D.Double(this.getRight(), this.getBottom()),
+                new Point2D.Double(this.getLeft(), this.getBottom())));
+        this.rulings.add(new Ruling(
+                new Point2D.Double(this.getLeft(), this.getBottom()),
+                new Point2D.Double(this.getLeft(), this.getTop())));
+    }
+
+    // smallest glyph width and height of the text of an area, 0 if it has none
+    private void findMinCharSize() {
+        if (this.minCharSizeKnown) {
+            return;
+        }
+        List<TextElement> texts = this.getText();
+        float minWidth = java.lang.Float.MAX_VALUE, minHeight = java.lang.Float.MAX_VALUE;
+        for (TextElement te : texts) {
+            minWidth = Math.min(minWidth, te.width);
+            minHeight = Math.min(minHeight, te.height);
+        }
+        this.minCharWidth = texts.isEmpty() ? 0 : minWidth;
+        this.minCharHeight = texts.isEmpty() ? 0 : minHeight;
+        this.minCharSizeKnown = true;
+    }
+
     public Page getArea(float top, float left, float bottom, float right) {
         Rectangle area = new Rectangle(top, left, right - left, bottom - top);
         return this.getArea(area);
     }
     
     public List<TextElement> getText() {
+        this.takeTextFromParent();
         return texts;
     }
     
@@ -128,7 +156,7 @@ public class Page extends Rectangle {
     }
 
     public List<TextElement> getTexts() {
-        return texts;
+        return this.getText();
     }
     
     /**
@@ -150,28 +178,28 @@ public class Page extends Rectangle {
             return this.cleanRulings;
         }
         
+        this.takeRulingsFromParent();
         if (this.rulings == null || this.rulings.isEmpty()) {
             this.verticalRulingLines = new ArrayList<Ruling>();
             this.horizontalRulingLines = new ArrayList<Ruling>();
             return new ArrayList<Ruling>();
         }
         
-        Utils.snapPoints(this.rulings, this.minCharWidth, this.minCharHeight);
+        Utils.snapPoints(this.rulings, this.getMinCharWidth(), this.getMinCharHeight());
         
+        // a ruling shorter than Utils.feq's epsilon on both axes goes in both lists
         List<Ruling> vrs = new ArrayList<Ruling>();
-        for (Ruling vr: this.rulings) {
-            if (vr.vertical()) {
-                vrs.add(vr);
+        List<Ruling> hrs = new ArrayList<Ruling>();
+        for (Ruling r: this.rulings) {
+            int orientation = OrientedRulings.orientationOf(r);
+            if ((orientation & OrientedRulings.VERTICAL) != 0) {
+                vrs.add(r);
             }
-        }
-        this.verticalRulingLines = Ruling.collapseOrientedRulings(vrs);
-        
-        List<Ruling> hrs = new ArrayList<Ruling>(); 
-        for (Ruling hr: this.rulings) {
-            if (hr.horizontal()) {
-                hrs.add(hr);
+            if ((orientation & OrientedRulings.HORIZONTAL) != 0) {
+                hrs.add(r);
             }
         }
+        this.verticalRulingLines = Ruling.collapseOrientedRulings(vrs);
         this.horizontalRulingLines = Ruling.collapseOrientedRulings(hrs);
         
         this.cleanRulings = new ArrayList<Ruling>(this.verticalRulingLines);
@@ -201,6 +229,7 @@ public class Page extends Rectangle {
         if (r.oblique()) {
             throw new UnsupportedOperationException("Can't add an oblique ruling");
         }
+        this.takeRulingsFromParent();
         this.rulings.add(r);
         // clear caches
         this.verticalRulingLines = null;
@@ -209,14 +238,17 @@ public class Page extends Rectangle {
     }
     
     public List<Ruling> getUnprocessedRulings() {
+        this.takeRulingsFromParent();
         return this.rulings;
     }
 
     public float getMinCharWidth() {
+        this.findMinCharSize();
         return minCharWidth;
     }
 
     public float getMinCharHeight() {
+        this.findMinCharSize();
         return minCharHeight;
     }
 
@@ -224,12 +256,57 @@ public class Page extends Rectangle {
     	return pdPage;
     }
 
+    /**
+     * Returns the areas images are drawn in on this Page, as far as they are known: pages not
+     * made by ObjectExtractor don't have any
+     */
+    public List<Rectangle> getImageAreas() {
+        if (this.imageAreas == null) {
+            this.imageAreas = this.parent.getImageAreas(this);
+        }
+        return imageAreas;
+    }
+
+    public List<Rectangle> getImageAreas(Rectangle area) {
+        List<Rectangle> rv = new ArrayList<Rectangle>();
+        for (Rectangle imageArea : this.getImageAreas()) {
+            if (imageArea.intersects(area)) {
+                rv.add(imageArea);
+            }
+        }
+        return rv;
+    }
+
+    /**
+     * Returns an index of how much of this Page glyphs cover, built the first time it's asked for
+     * (and again when asked for with another cell size)
+     */
+    public TextDensityIndex getTextDensityIndex() {
+        return this.getTextDensityIndex(this.textDensityIndex != null ?
+                this.textDensityIndex.getCellSize() :
+                TextDensityIndex.DEFAULT_CELL_SIZE);
+    }
+
+    public TextDensityIndex getTextDensityIndex(float cellSize) {
+        if (this.textDensityIndex == null || this.textDensityIndex.getCellSize() != cellSize) {
+            this.textDensityIndex = new TextDensityIndex(this, this.getText(), cellSize);
+        }
+        return this.textDensityIndex;
+    }
+
+    /**
+     * @return the fraction of area that glyphs cover
+     */
+    public float getTextDensity(Rectangle area) {
+        return this.getTextDensityIndex().getDensity(area);
+    }
+
     public RectangleSpatialIndex<TextElement> getSpatialIndex() {
         return this.spatial_index;
     }
     
     public boolean hasText() {
-        return this.texts.size() > 0;
+        return this.getText().size() > 0;
     }
     
     
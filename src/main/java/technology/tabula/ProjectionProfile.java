@@ -5,16 +5,27 @@ import java.util.Collections;
 import java.util.List;
 
 
+/**
+ * Horizontal and vertical projection profiles of the elements of an area of a page: for each
+ * tenth of a point across (or down) the area, the total height (or width) of the elements over
+ * it, smoothed with a box filter. Valleys in the profiles separate columns (or rows) of text.
+ *
+ * Profiles are accumulated in fixed point, in difference arrays: each element adds its height
+ * at its left and takes it away at its right, so it costs the same however wide it is. A prefix
+ * sum then gives the profile, and another one the box filter, in time linear in the size of
+ * the area.
+ */
 public class ProjectionProfile {
 
     public static final int DECIMAL_PLACES = 1; // fixed <-> float conversion precision
+    private static final double FIXED_SCALE = Math.pow(10, DECIMAL_PLACES);
+    // heights and widths are added up in hundredths of a point, the precision of glyph sizes
+    private static final int VALUE_SCALE = 100;
     private final Page area;
     private final Rectangle textBounds;
     private float[] verticalProjection;
     private float[] horizontalProjection;
     private final double areaWidth, areaHeight, areaTop, areaLeft;
-    private float minCharWidth = Float.MAX_VALUE, minCharHeight = Float.MAX_VALUE, horizontalKernelSize, verticalKernelSize;
-    private float maxHorizontalProjection = 0, maxVerticalProjection = 0;
     
     public ProjectionProfile(Page area, List<? extends Rectangle> elements, float horizontalKernelSize, float verticalKernelSize) {
         this.area = area;
@@ -22,11 +33,12 @@ public class ProjectionProfile {
         this.areaHeight = area.getHeight();
         this.areaTop = area.getTop();
         this.areaLeft = area.getLeft();
-        this.verticalProjection = new float[toFixed(areaHeight)];
-        this.horizontalProjection = new float[toFixed(areaWidth)];
-        this.horizontalKernelSize = horizontalKernelSize;
-        this.verticalKernelSize = verticalKernelSize;
         this.textBounds = area.getTextBounds();
+
+        int fixedLeft = toFixed(areaLeft), fixedTop = toFixed(areaTop);
+        // one more slot than the profiles, for the ends of elements at the right (or bottom) of the area
+        int[] horizontalDifferences = new int[toFixed(areaWidth) + 1];
+        int[] verticalDifferences = new int[toFixed(areaHeight) + 1];
         
         for (Rectangle element: elements) {
             // exclude elements that take more than 80% of the width
@@ -34,30 +46,53 @@ public class ProjectionProfile {
             if (element.getWidth() / this.textBounds.getWidth() > 0.8) {
                 continue;
             }
-            this.addRectangle(element);
+            if (!area.contains(element)) {
+                continue;
+            }
+            addRange(horizontalDifferences, toFixed(element.getLeft()) - fixedLeft, toFixed(element.getRight()) - fixedLeft,
+                     toValue(element.getHeight()));
+            addRange(verticalDifferences, toFixed(element.getTop()) - fixedTop, toFixed(element.getBottom()) - fixedTop,
+                     toValue(element.getWidth()));
         }
         
-        this.verticalProjection = smooth(this.verticalProjection, toFixed(verticalKernelSize));
-        this.horizontalProjection = smooth(this.horizontalProjection, toFixed(horizontalKernelSize));
+        this.verticalProjection = smoothFixed(prefixSums(verticalDifferences), toFixed(verticalKernelSize));
+        this.horizontalProjection = smoothFixed(prefixSums(horizontalDifferences), toFixed(horizontalKernelSize));
     }
-    
-    private void addRectangle(Rectangle element) {
-        // calculate horizontal and vertical projection profiles
-        if (!area.contains(element)) {
+
+    // adds value to slots from..to - 1 of the profile of differences
+    private static void addRange(int[] differences, int from, int to, int value) {
+        to = Math.min(to, differences.length - 1);
+        if (from >= to) {
             return;
         }
-        
-        this.minCharHeight = (float) Math.min(this.minCharHeight, element.getHeight());
-        this.minCharWidth = (float) Math.min(this.minCharWidth, element.getWidth());
-        
-        for (int k = toFixed(element.getLeft()); k < toFixed(element.getRight()); k++) {
-            this.horizontalProjection[k - toFixed(areaLeft)] += element.getHeight();
-            this.maxHorizontalProjection = Math.max(this.maxHorizontalProjection, this.horizontalProjection[k - toFixed(areaLeft)]);
+        differences[from] += value;
+        differences[to] -= value;
+    }
+
+    // the profile of differences, with one slot less: the last one only ends ranges
+    private static long[] prefixSums(int[] differences) {
+        long[] rv = new long[differences.length - 1];
+        long sum = 0;
+        for (int i = 0; i < rv.length; i++) {
+            sum += differences[i];
+            rv[i] = sum;
+        }
+        return rv;
+    }
+
+    // smooth of the fixed point profile, back in floating point
+    private static float[] smoothFixed(long[] profile, int kernelSize) {
+        long[] sums = new long[profile.length + 1];
+        for (int i = 0; i < profile.length; i++) {
+            sums[i + 1] = sums[i] + profile[i];
         }
-        for(int k = toFixed(element.getTop()); k < toFixed(element.getBottom()); k++) {
-            this.verticalProjection[k - toFixed(areaTop)] += element.getWidth();
-            this.maxVerticalProjection = Math.max(this.maxVerticalProjection, this.verticalProjection[k - toFixed(areaTop)]);
+        float[] rv = new float[profile.length];
+        double divisor = (double) VALUE_SCALE * kernelSize;
+        for (int i = 0; i < rv.length; i++) {
+            long s = sums[Math.min(i + kernelSize / 2, profile.length)] - sums[Math.max(0, i - kernelSize / 2)];
+            rv[i] = (float) Math.floor(s / divisor);
         }
+        return rv;
     }
     
     public float[] getVerticalProjection() {
@@ -105,7 +140,6 @@ public class ProjectionProfile {
 
         List<Integer> horizontalSeparators = new ArrayList<Integer>();
         for (Ruling r: area.getHorizontalRulings()) {
-            System.out.println(r.length() / this.textBounds.getWidth());
             if (r.length() / this.textBounds.getWidth() >= 0.95) {
                 horizontalSeparators.add(toFixed(r.getPosition() - this.areaTop));
             }
@@ -133,6 +167,35 @@ public class ProjectionProfile {
         return rv;
     }
     
+    /**
+     * @return x positions on the page between columns of text, sorted: vertical rulings that
+     *         span the text, and valleys of the horizontal projection at least minColumnWidth
+     *         away from them. Positions left or right of all the text are left out
+     */
+    public List<java.lang.Float> findColumnPositions(float minColumnWidth) {
+        return toPositions(this.findVerticalSeparators(minColumnWidth), this.areaLeft,
+                           this.textBounds.getLeft(), this.textBounds.getRight());
+    }
+
+    /**
+     * @return y positions on the page between rows of text, sorted, as findColumnPositions
+     */
+    public List<java.lang.Float> findRowPositions(float minRowHeight) {
+        return toPositions(this.findHorizontalSeparators(minRowHeight), this.areaTop,
+                           this.textBounds.getTop(), this.textBounds.getBottom());
+    }
+
+    private static List<java.lang.Float> toPositions(float[] separators, double offset, float textStart, float textEnd) {
+        List<java.lang.Float> rv = new ArrayList<java.lang.Float>(separators.length);
+        for (float separator : separators) {
+            float position = (float) (separator + offset);
+            if (position > textStart && position < textEnd) {
+                rv.add(position);
+            }
+        }
+        return rv;
+    }
+    
     private static List<Integer> findSeparatorsFromProjection(float[] derivative) {
         List<Integer> separators = new ArrayList<Integer>();
         Integer lastNeg = null;
@@ -154,19 +217,20 @@ public class ProjectionProfile {
         return separators;
     }
     
+    /**
+     * @return data smoothed with a box filter: the sum of the kernelSize / 2 values before each
+     *         one and of itself and the kernelSize / 2 - 1 values after it, divided by kernelSize
+     *         and rounded down
+     */
     public static float[] smooth(float[] data, int kernelSize) {
+        double[] sums = new double[data.length + 1];
+        for (int i = 0; i < data.length; i++) {
+            sums[i + 1] = sums[i] + data[i];
+        }
         float[] rv = new float[data.length];
-        float s;
-        
-        for (int pass = 0; pass < 1; pass++) {
-            for (int i = 0; i < data.length; i++) {
-                s = 0;
-                for (int j = Math.max(0, i - kernelSize / 2); j < Math.min(i
-                        + kernelSize / 2, data.length); j++) {
-                    s += data[j];
-                }
-                rv[i] = (float) Math.floor(s / (float) kernelSize);
-            }
+        for (int i = 0; i < data.length; i++) {
+            double s = sums[Math.min(i + kernelSize / 2, data.length)] - sums[Math.max(0, i - kernelSize / 2)];
+            rv[i] = (float) Math.floor(s / (float) kernelSize);
         }
         return rv;
     }
@@ -207,11 +271,15 @@ public class ProjectionProfile {
 
     // pretty lame fixed precision math here
     private static int toFixed(double value) {
-        return (int) Math.round(value * (Math.pow(10, DECIMAL_PLACES)));
+        return (int) Math.round(value * FIXED_SCALE);
     }
     
+    private static int toValue(double value) {
+        return (int) Math.round(value * VALUE_SCALE);
+    }
+
     private static double toDouble(int value) {
-        return (double) value / Math.pow(10, DECIMAL_PLACES);
+        return (double) value / FIXED_SCALE;
     }
     
 }
@@ -9,12 +9,13 @@ import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 @SuppressWarnings("serial")
 public class Ruling extends Line2D.Float {
 
-    private static int PERPENDICULAR_PIXEL_EXPAND_AMOUNT = 2;
+    static final int PERPENDICULAR_PIXEL_EXPAND_AMOUNT = 2;
     private static int COLINEAR_OR_PARALLEL_PIXEL_EXPAND_AMOUNT = 1;
     private enum SOType { VERTICAL, HRIGHT, HLEFT };
 
@@ -53,32 +54,35 @@ public class Ruling extends Line2D.Float {
     }
 
     public boolean vertical() {
-        return this.length() > 0 && Utils.feq(this.x1, this.x2); //diff < ORIENTATION_CHECK_THRESHOLD;
+        return (OrientedRulings.orientationOf(this) & OrientedRulings.VERTICAL) != 0;
     }
 
     public boolean horizontal() {
-        return this.length() > 0 && Utils.feq(this.y1, this.y2); //diff < ORIENTATION_CHECK_THRESHOLD;
+        return (OrientedRulings.orientationOf(this) & OrientedRulings.HORIZONTAL) != 0;
     }
 
     public boolean oblique() {
-        return !(this.vertical() || this.horizontal());
+        return OrientedRulings.orientationOf(this) == 0;
     }
 
     // attributes that make sense only for non-oblique lines
     // these are used to have a single collapse method (in page, currently)
 
-    public float getPosition() {
-        if (this.oblique()) {
+    // checks the orientation once: true if vertical, false if horizontal
+    private boolean verticalOrThrow() {
+        int orientation = OrientedRulings.orientationOf(this);
+        if (orientation == 0) {
             throw new UnsupportedOperationException();
         }
-        return this.vertical() ? this.getLeft() : this.getTop();
+        return (orientation & OrientedRulings.VERTICAL) != 0;
+    }
+
+    public float getPosition() {
+        return this.verticalOrThrow() ? this.getLeft() : this.getTop();
     }
 
     public void setPosition(float v) {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        if (this.vertical()) {
+        if (this.verticalOrThrow()) {
             this.setLeft(v);
             this.setRight(v);
         }
@@ -89,17 +93,11 @@ public class Ruling extends Line2D.Float {
     }
 
     public float getStart() {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        return this.vertical() ? this.getTop() : this.getLeft();
+        return this.verticalOrThrow() ? this.getTop() : this.getLeft();
     }
 
     public void setStart(float v) {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        if (this.vertical()) {
+        if (this.verticalOrThrow()) {
             this.setTop(v);
         }
         else {
@@ -108,17 +106,11 @@ public class Ruling extends Line2D.Float {
     }
 
     public float getEnd() {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        return this.vertical() ? this.getBottom() : this.getRight();
+        return this.verticalOrThrow() ? this.getBottom() : this.getRight();
     }
 
     public void setEnd(float v) {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        if (this.vertical()) {
+        if (this.verticalOrThrow()) {
             this.setBottom(v);
         }
         else {
@@ -127,10 +119,7 @@ public class Ruling extends Line2D.Float {
     }
 
     private void setStartEnd(float start, float end) {
-        if (this.oblique()) {
-            throw new UnsupportedOperationException();
-        }
-        if (this.vertical()) {
+        if (this.verticalOrThrow()) {
             this.setTop(start);
             this.setBottom(end);
         }
@@ -389,14 +378,19 @@ public class Ruling extends Line2D.Float {
         for (SortObject so : sos) {
             switch(so.type) {
             case VERTICAL:
-                for (Map.Entry<Ruling, Boolean> h : tree.entrySet()) {
-                    Point2D i = h.getKey().intersectionPoint(so.ruling);
-                    if (i == null) {
+                // only the active horizontals whose y lies within the (expanded) vertical can intersect it
+                Ruling v = so.ruling;
+                float vTop = Math.min(v.y1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, v.y2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+                float vBottom = Math.max(v.y1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, v.y2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+                SortedMap<Ruling, Boolean> candidates = tree.subMap(new Ruling(vTop, v.x1, 0, 0), true,
+                                                                    new Ruling(vBottom, v.x1, 0, 0), true);
+                for (Ruling h : candidates.keySet()) {
+                    if (!intersectsExpanded(h, v)) {
                         continue;
                     }
-                    rv.put(i,
-                           new Ruling[] { h.getKey().expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT),
-                                          so.ruling.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT) });
+                    rv.put(new Point2D.Float(v.getLeft(), h.getTop()),
+                           new Ruling[] { h.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT),
+                                          v.expand(PERPENDICULAR_PIXEL_EXPAND_AMOUNT) });
                 }
                 break;
             case HRIGHT:
@@ -412,20 +406,105 @@ public class Ruling extends Line2D.Float {
 
     }
 
+    // same test as intersectionPoint(), on the primitive coordinates: both rulings are
+    // expanded by PERPENDICULAR_PIXEL_EXPAND_AMOUNT along their length, but nothing is cloned
+    private static boolean intersectsExpanded(Ruling horizontal, Ruling vertical) {
+        float hLeft = Math.min(horizontal.x1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, horizontal.x2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+        float hRight = Math.max(horizontal.x1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, horizontal.x2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+        float vTop = Math.min(vertical.y1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, vertical.y2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+        float vBottom = Math.max(vertical.y1 - PERPENDICULAR_PIXEL_EXPAND_AMOUNT, vertical.y2 + PERPENDICULAR_PIXEL_EXPAND_AMOUNT);
+        return vertical.x1 >= hLeft && vertical.x1 <= hRight
+                && horizontal.y1 >= vTop && horizontal.y1 <= vBottom;
+    }
+
     public static List<Ruling> collapseOrientedRulings(List<Ruling> lines) {
         return collapseOrientedRulings(lines, COLINEAR_OR_PARALLEL_PIXEL_EXPAND_AMOUNT);
     }
 
+    /**
+     * Merges colinear rulings that overlap, or that would overlap if expanded by expandAmount
+     * along their length, as tested by nearlyIntersects. Sorts lines in place by position,
+     * then start.
+     */
     public static List<Ruling> collapseOrientedRulings(List<Ruling> lines, int expandAmount) {
+        if (lines.size() < 2) {
+            return collapseSorted(lines, expandAmount);
+        }
+        boolean vertical = lines.get(0).vertical();
+        OrientedRulings oriented = new OrientedRulings(lines, vertical);
+        if (oriented.size() != lines.size()) {
+            // mixed orientations, oblique or empty lines (which throw, as before)
+            Collections.sort(lines, new Comparator<Ruling>() {
+                @Override
+                public int compare(Ruling a, Ruling b) {
+                    final float diff = a.getPosition() - b.getPosition();
+                    return java.lang.Float.compare(diff == 0 ? a.getStart() - b.getStart() : diff, 0f);
+                }
+            });
+            return collapseSorted(lines, expandAmount);
+        }
+
+        int[] order = oriented.sortedByPositionAndStart();
+        Ruling[] sorted = new Ruling[order.length];
+        for (int k = 0; k < order.length; k++) {
+            sorted[k] = lines.get(oriented.getIndex(order[k]));
+        }
+        for (int k = 0; k < sorted.length; k++) {
+            lines.set(k, sorted[k]);
+        }
+
+        // a sweep over the sorted rulings, merging each one into the last ruling kept if they
+        // nearly intersect. lastPosition, lastStart and lastEnd are always last's coordinates,
+        // and lastAligned tells if last is exactly horizontal (vertical). Two such rulings nearly
+        // intersect if they're on the same line and their expanded intervals overlap, so
+        // nearlyIntersects is only called when one of them isn't
         ArrayList<Ruling> rv = new ArrayList<Ruling>();
-        Collections.sort(lines, new Comparator<Ruling>() {
-            @Override
-            public int compare(Ruling a, Ruling b) {
-                final float diff = a.getPosition() - b.getPosition();
-                return java.lang.Float.compare(diff == 0 ? a.getStart() - b.getStart() : diff, 0f);
+        Ruling last = null;
+        float lastPosition = 0, lastStart = 0, lastEnd = 0;
+        boolean lastAligned = false;
+        for (int k = 0; k < order.length; k++) {
+            Ruling next = sorted[k];
+            int i = order[k];
+            float position = oriented.getPosition(i), start = oriented.getStart(i), end = oriented.getEnd(i);
+            // lines short enough to be both vertical and horizontal are perpendicular to everything
+            boolean aligned = vertical ? next.x1 == next.x2 && !Utils.feq(next.y1, next.y2) : next.y1 == next.y2;
+
+            boolean merge = last != null && (aligned && lastAligned ?
+                    position == lastPosition && overlap(lastStart, lastEnd, start, end, expandAmount) :
+                    Utils.feq(position, lastPosition) && last.nearlyIntersects(next, expandAmount));
+            if (merge) {
+                final boolean lastFlipped = lastStart > lastEnd;
+                final boolean nextFlipped = start > end;
+
+                boolean differentDirections = nextFlipped != lastFlipped;
+                float nextS = differentDirections ? end : start;
+                float nextE = differentDirections ? start : end;
+
+                lastStart = lastFlipped ? Math.max(nextS, lastStart) : Math.min(nextS, lastStart);
+                lastEnd = lastFlipped ? Math.min(nextE, lastEnd) : Math.max(nextE, lastEnd);
+                last.setStartEnd(lastStart, lastEnd);
+                continue;
             }
-        });
 
+            rv.add(next);
+            last = next;
+            lastPosition = position;
+            lastStart = start;
+            lastEnd = end;
+            lastAligned = aligned;
+        }
+        return rv;
+    }
+
+    // true if the intervals, expanded as by expand(amount), overlap or touch
+    private static boolean overlap(float start1, float end1, float start2, float end2, float amount) {
+        float s1 = start1 - amount, e1 = end1 + amount, s2 = start2 - amount, e2 = end2 + amount;
+        return Math.max(Math.min(s1, e1), Math.min(s2, e2)) <= Math.min(Math.max(s1, e1), Math.max(s2, e2));
+    }
+
+    // collapses lines already sorted by position and start
+    private static List<Ruling> collapseSorted(List<Ruling> lines, int expandAmount) {
+        ArrayList<Ruling> rv = new ArrayList<Ruling>();
         for (Ruling next_line : lines) {
             Ruling last = rv.isEmpty() ? null : rv.get(rv.size() - 1);
             // if current line colinear with next, and are "close enough": expand current line
@@ -0,0 +1,329 @@
+package technology.tabula;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Crossing points of a set of horizontal and vertical rulings.
+ *
+ * Points are stored in primitive arrays and indexed in an open-addressing map by their
+ * coordinates, snapped to a 1/SNAP_SCALE grid and packed into a long. Each point refers to the
+ * horizontal and vertical ruling that cross at it by their index in the lists this object
+ * was built from, so rulings aren't copied.
+ *
+ * Rulings are expanded by Ruling.PERPENDICULAR_PIXEL_EXPAND_AMOUNT along their length
+ * before checking if they cross, as in Ruling.findIntersections
+ */
+public class RulingIntersections {
+
+    private static final int SNAP_SCALE = 100;
+
+    private final List<Ruling> horizontals;
+    private final List<Ruling> verticals;
+
+    private int size = 0;
+    private float[] xs, ys;
+    private int[] snappedXs, snappedYs;
+    private int[] horizontalIndexes, verticalIndexes;
+    private final LongIntHashMap index;
+
+    private int[] rowMajorOrder;
+    private int[] nextInRow, nextInColumn;
+
+    public RulingIntersections(List<Ruling> horizontals, List<Ruling> verticals) {
+        this.horizontals = horizontals;
+        this.verticals = verticals;
+
+        int capacity = Math.max(16, horizontals.size() + verticals.size());
+        this.xs = new float[capacity];
+        this.ys = new float[capacity];
+        this.snappedXs = new int[capacity];
+        this.snappedYs = new int[capacity];
+        this.horizontalIndexes = new int[capacity];
+        this.verticalIndexes = new int[capacity];
+        this.index = new LongIntHashMap(capacity);
+
+        this.findIntersections();
+        this.buildOrders();
+    }
+
+    private void findIntersections() {
+        final float expand = Ruling.PERPENDICULAR_PIXEL_EXPAND_AMOUNT;
+
+        // the lists are indexed as they are: rulings in each of them are assumed to have its orientation
+        final OrientedRulings h = OrientedRulings.assumingOrientation(this.horizontals, false);
+        final OrientedRulings v = OrientedRulings.assumingOrientation(this.verticals, true);
+        final int hCount = h.size(), vCount = v.size();
+
+        // the distinct ys of the horizontals, sorted, and the slot of each horizontal among them
+        float[] ys = new float[hCount];
+        for (int i = 0; i < hCount; i++) {
+            ys[i] = h.getPosition(i);
+        }
+        Arrays.sort(ys);
+        int distinct = 0;
+        for (int k = 0; k < hCount; k++) {
+            if (k == 0 || Float.compare(ys[k], ys[distinct - 1]) != 0) {
+                ys[distinct++] = ys[k];
+            }
+        }
+        ys = Arrays.copyOf(ys, distinct);
+        int[] slotOf = new int[hCount];
+        for (int i = 0; i < hCount; i++) {
+            slotOf[i] = Arrays.binarySearch(ys, h.getPosition(i));
+        }
+
+        // the sweep of Ruling.findIntersections, left to right over the left and right ends of the
+        // horizontals (expanded) and the verticals: event e < 2 * hCount is the left (even e) or
+        // right (odd e) end of horizontal e / 2, the others are verticals. Events are sorted as
+        // keys packing their position with their number
+        final int eventCount = 2 * hCount + vCount;
+        float[] positions = new float[eventCount];
+        for (int i = 0; i < hCount; i++) {
+            positions[2 * i] = h.getStart(i) - expand;
+            positions[2 * i + 1] = h.getEnd(i) + expand;
+        }
+        for (int j = 0; j < vCount; j++) {
+            positions[2 * hCount + j] = v.getPosition(j);
+        }
+        long[] keys = new long[eventCount];
+        for (int e = 0; e < eventCount; e++) {
+            // + 0f so that -0 and 0 are equal
+            keys[e] = LongIntHashMap.pack(OrientedRulings.sortableBits(positions[e] + 0f), e);
+        }
+        Arrays.sort(keys);
+        int[] events = new int[eventCount];
+        for (int k = 0; k < eventCount; k++) {
+            events[k] = LongIntHashMap.unpackLow(keys[k]);
+        }
+        // at nearly (Utils.feq) the same position, horizontals start before verticals and end after them
+        int[] buffer = new int[eventCount];
+        for (int from = 0, to; from < eventCount; from = to) {
+            to = from + 1;
+            while (to < eventCount && Utils.feq(positions[events[to]], positions[events[from]])) {
+                to++;
+            }
+            if (to - from > 1) {
+                groupByType(events, from, to, hCount, buffer);
+            }
+        }
+
+        // the active horizontal at each y, or -1. As in Ruling.findIntersections, which keeps active
+        // horizontals in a map by y, a horizontal that starts while another one at its y is active
+        // is ignored, and the end of either ends the one that is active
+        int[] active = new int[distinct];
+        Arrays.fill(active, -1);
+
+        for (int e : events) {
+            int type = eventType(e, hCount);
+            if (type == LEFT_END) {
+                int slot = slotOf[e / 2];
+                if (active[slot] == -1) {
+                    active[slot] = e / 2;
+                }
+            }
+            else if (type == RIGHT_END) {
+                active[slotOf[e / 2]] = -1;
+            }
+            else {
+                int j = e - 2 * hCount;
+                float x = v.getPosition(j);
+                float vTop = v.getExpandedMin(j, expand);
+                float vBottom = v.getExpandedMax(j, expand);
+
+                // only horizontals whose y is within the vertical's span can cross it.
+                // When two intersections fall on the same point, the one found last wins
+                for (int k = lowerBound(ys, vTop); k < distinct && ys[k] <= vBottom; k++) {
+                    int i = active[k];
+                    if (i != -1 && x >= h.getExpandedMin(i, expand) && x <= h.getExpandedMax(i, expand)) {
+                        this.add(x, ys[k], i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final int LEFT_END = 0, RIGHT_END = 1, VERTICAL = 2;
+    private static final int[] TYPE_ORDER = { LEFT_END, VERTICAL, RIGHT_END };
+
+    private static int eventType(int e, int hCount) {
+        return e >= 2 * hCount ? VERTICAL : e % 2 == 0 ? LEFT_END : RIGHT_END;
+    }
+
+    // stable reorder of events[from, to) by type: left ends, verticals, then right ends
+    private static void groupByType(int[] events, int from, int to, int hCount, int[] buffer) {
+        int k = from;
+        for (int type : TYPE_ORDER) {
+            for (int i = from; i < to; i++) {
+                if (eventType(events[i], hCount) == type) {
+                    buffer[k++] = events[i];
+                }
+            }
+        }
+        System.arraycopy(buffer, from, events, from, to - from);
+    }
+
+    private void add(float x, float y, int horizontalIndex, int verticalIndex) {
+        int sx = snap(x), sy = snap(y);
+        long key = LongIntHashMap.pack(sy, sx);
+        int existing = this.index.get(key, -1);
+        if (existing != -1) {
+            this.horizontalIndexes[existing] = horizontalIndex;
+            this.verticalIndexes[existing] = verticalIndex;
+            return;
+        }
+        if (this.size == this.xs.length) {
+            int capacity = this.size << 1;
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.ys = Arrays.copyOf(this.ys, capacity);
+            this.snappedXs = Arrays.copyOf(this.snappedXs, capacity);
+            this.snappedYs = Arrays.copyOf(this.snappedYs, capacity);
+            this.horizontalIndexes = Arrays.copyOf(this.horizontalIndexes, capacity);
+            this.verticalIndexes = Arrays.copyOf(this.verticalIndexes, capacity);
+        }
+        this.xs[this.size] = x;
+        this.ys[this.size] = y;
+        this.snappedXs[this.size] = sx;
+        this.snappedYs[this.size] = sy;
+        this.horizontalIndexes[this.size] = horizontalIndex;
+        this.verticalIndexes[this.size] = verticalIndex;
+        this.index.put(key, this.size, -1);
+        this.size++;
+    }
+
+    // sort points top to bottom, left to right and link each one to the next point
+    // on the same row and on the same column
+    private void buildOrders() {
+        long[] rowKeys = new long[this.size];
+        long[] columnKeys = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            rowKeys[i] = LongIntHashMap.pack(this.snappedYs[i], this.snappedXs[i]);
+            columnKeys[i] = LongIntHashMap.pack(this.snappedXs[i], this.snappedYs[i]);
+        }
+        Arrays.sort(rowKeys);
+        Arrays.sort(columnKeys);
+
+        this.rowMajorOrder = new int[this.size];
+        this.nextInRow = new int[this.size];
+        this.nextInColumn = new int[this.size];
+        Arrays.fill(this.nextInRow, -1);
+        Arrays.fill(this.nextInColumn, -1);
+
+        int previous = -1;
+        for (int k = 0; k < this.size; k++) {
+            int i = this.index.get(rowKeys[k], -1);
+            this.rowMajorOrder[k] = i;
+            if (previous != -1 && this.snappedYs[previous] == this.snappedYs[i]) {
+                this.nextInRow[previous] = i;
+            }
+            previous = i;
+        }
+
+        previous = -1;
+        for (int k = 0; k < this.size; k++) {
+            long columnKey = columnKeys[k];
+            int i = this.index.get(LongIntHashMap.pack(LongIntHashMap.unpackLow(columnKey),
+                                                       LongIntHashMap.unpackHigh(columnKey)), -1);
+            if (previous != -1 && this.snappedXs[previous] == this.snappedXs[i]) {
+                this.nextInColumn[previous] = i;
+            }
+            previous = i;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public float getX(int i) {
+        return this.xs[i];
+    }
+
+    public float getY(int i) {
+        return this.ys[i];
+    }
+
+    public Point2D getPoint(int i) {
+        return new Point2D.Float(this.xs[i], this.ys[i]);
+    }
+
+    public int getHorizontalIndex(int i) {
+        return this.horizontalIndexes[i];
+    }
+
+    public int getVerticalIndex(int i) {
+        return this.verticalIndexes[i];
+    }
+
+    public Ruling getHorizontal(int i) {
+        return this.horizontals.get(this.horizontalIndexes[i]);
+    }
+
+    public Ruling getVertical(int i) {
+        return this.verticals.get(this.verticalIndexes[i]);
+    }
+
+    /**
+     * @return the index of the intersection at (x, y), or -1 if there's none
+     */
+    public int indexOf(double x, double y) {
+        return this.index.get(LongIntHashMap.pack(snap(y), snap(x)), -1);
+    }
+
+    /**
+     * Indexes of all the intersections, sorted top to bottom and left to right.
+     * Do not modify the returned array.
+     */
+    public int[] rowMajorOrder() {
+        return this.rowMajorOrder;
+    }
+
+    /**
+     * @return the index of the next intersection to the right of i, on the same row, or -1
+     */
+    public int nextInRow(int i) {
+        return this.nextInRow[i];
+    }
+
+    /**
+     * @return the index of the next intersection below i, on the same column, or -1
+     */
+    public int nextInColumn(int i) {
+        return this.nextInColumn[i];
+    }
+
+    /**
+     * @return true if intersections i and j lie on the same horizontal ruling
+     */
+    public boolean sameHorizontal(int i, int j) {
+        int a = this.horizontalIndexes[i], b = this.horizontalIndexes[j];
+        return a == b || this.horizontals.get(a).equals(this.horizontals.get(b));
+    }
+
+    /**
+     * @return true if intersections i and j lie on the same vertical ruling
+     */
+    public boolean sameVertical(int i, int j) {
+        int a = this.verticalIndexes[i], b = this.verticalIndexes[j];
+        return a == b || this.verticals.get(a).equals(this.verticals.get(b));
+    }
+
+    private static int snap(double v) {
+        return (int) Math.round(v * SNAP_SCALE);
+    }
+
+    private static int lowerBound(float[] sorted, float value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
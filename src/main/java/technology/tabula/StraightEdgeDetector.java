@@ -4,49 +4,92 @@ import technology.tabula.Page;
 import technology.tabula.TextChunk;
 import technology.tabula.TextElement;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Reads text chunks to find non-ragged edges from a spreadhsheet. These can then
  * be used as vertical rulings.
+ *
+ * Edges are counted in a histogram of buckets QUANTUM wide, so that edges a rounding error
+ * apart count as the same edge, but are reported where the text is. Only the buckets edges are
+ * counted in are kept, so stray text far off the page doesn't make the histogram any larger. Edges of all the pages of a document can be counted together
+ * with getBestDocumentEdges, for documents whose pages share a column layout.
  */
 public class StraightEdgeDetector {
-    // uses very simple edge comparison, on exact floating point values. For
-    // numerical stability, this could be done using an epsilon comparison,
-    // but
-    private HashMap<Float, Integer> edgeCounts = new HashMap<Float, Integer>();
-    private int maxEdgeCount = 0;
     private static final float DEFAULT_NUDGE = 0.1f;
 
+    // width of the buckets of the histogram, in points
+    public static final float QUANTUM = 0.5f;
+
+    // edgeCounts[i] is the number of edges in the i-th bucket counted in, buckets[i], that is around
+    // buckets[i] * QUANTUM, and minEdges[i], maxEdges[i] and edgeSums[i] the smallest, largest and
+    // sum of them. slots maps each bucket to its i
+    private final LongIntHashMap slots = new LongIntHashMap();
+    private int[] buckets = new int[16];
+    private int[] edgeCounts = new int[16];
+    private float[] minEdges = new float[16];
+    private float[] maxEdges = new float[16];
+    private double[] edgeSums = new double[16];
+    private int distinctEdges = 0;
+    private int maxEdgeCount = 0;
+
     public int distinctEdges() {
-      return edgeCounts.size();
+      return distinctEdges;
     }
 
     public void countEdge(float edge) {
-      Float boxed = new Float(edge);
-      int newValue = getCurrentEdgeCount(edge) + 1;
-      edgeCounts.put(edge, new Integer(newValue));
+      int bucket = Math.round(edge / QUANTUM);
+      int i = slots.get(bucket, -1);
+      if (i == -1) {
+        i = addBucket(bucket, edge);
+      }
+      int newValue = ++edgeCounts[i];
+      minEdges[i] = Math.min(minEdges[i], edge);
+      maxEdges[i] = Math.max(maxEdges[i], edge);
+      edgeSums[i] += edge;
       maxEdgeCount = Math.max(maxEdgeCount, newValue);
     }
 
+    public void countLeftEdges(List<TextChunk> chunks) {
+      for (TextChunk chunk: chunks) {
+        countEdge(chunk.getLeft());
+      }
+    }
+
+    public void countRightEdges(List<TextChunk> chunks) {
+      for (TextChunk chunk: chunks) {
+        countEdge(chunk.getRight());
+      }
+    }
+
     /**
      * Finds all edges, filters them based on a signficance heuristic, and sorts them.
+     * Edges counted together are reported at the one farthest in the direction of nudge, so
+     * that nudged edges clear all the text they were counted from (at their average without nudge)
      * @param nudge Value to add to each edge result, to avoid overlapping the text
      * @return [Collection of floats, sorted indicating the positions of aligned edges in the page]
      */
     public List<Float> significantEdgePositions(float nudge) {
+      // buckets, left to right
+      long[] order = new long[distinctEdges];
+      for (int i = 0; i < distinctEdges; i++) {
+        order[i] = LongIntHashMap.pack(buckets[i], i);
+      }
+      Arrays.sort(order);
+
       ArrayList<Float> significantEdges = new ArrayList<Float>();
-      for (Float edge: edgeCounts.keySet()) {
-        if (edgeCounts.get(edge).intValue() * 2 < maxEdgeCount) continue;
+      for (long packed: order) {
+        int i = LongIntHashMap.unpackLow(packed);
         // simple heuristic to discard unimportant edges. The idea is that for significant
         // edges, basically every row should have something starting at that column
-        significantEdges.add(new Float(edge.floatValue() + nudge));
+        if (edgeCounts[i] * 2 < maxEdgeCount) continue;
+        float edge = nudge < 0 ? minEdges[i] : nudge > 0 ? maxEdges[i] : (float) (edgeSums[i] / edgeCounts[i]);
+        significantEdges.add(edge + nudge);
       }
-      Collections.sort(significantEdges);
       return significantEdges;
     }
 
@@ -55,12 +98,38 @@ public class StraightEdgeDetector {
     }
 
     public static List<Float> getBestPageEdges(Page page, float nudge) {
-      List<TextElement> pageTextCopy = new ArrayList<TextElement>(page.getText().size());
-      pageTextCopy.addAll(page.getText());
+      return getBestDocumentEdges(Collections.singletonList(page), nudge);
+    }
+
+    public static List<Float> getBestDocumentEdges(Iterable<Page> pages) {
+      return getBestDocumentEdges(pages.iterator(), DEFAULT_NUDGE);
+    }
+
+    public static List<Float> getBestDocumentEdges(Iterable<Page> pages, float nudge) {
+      return getBestDocumentEdges(pages.iterator(), nudge);
+    }
+
+    public static List<Float> getBestDocumentEdges(Iterator<Page> pages) {
+      return getBestDocumentEdges(pages, DEFAULT_NUDGE);
+    }
+
+    /**
+     * Counts the edges of the text of all pages together, so that columns are found once for
+     * documents whose pages share a layout, and from more rows than any one page has. Pages
+     * are only needed while their edges are counted, so they can be read from a PageIterator.
+     */
+    public static List<Float> getBestDocumentEdges(Iterator<Page> pages, float nudge) {
+      StraightEdgeDetector leftEdges = new StraightEdgeDetector();
+      StraightEdgeDetector rightEdges = new StraightEdgeDetector();
+      while (pages.hasNext()) {
+        Page page = pages.next();
+        List<TextElement> pageTextCopy = new ArrayList<TextElement>(page.getText().size());
+        pageTextCopy.addAll(page.getText());
         // make a copy, since mergeWords actually changes the input list
-      List<TextChunk> chunks = TextElement.mergeWords(pageTextCopy);
-      StraightEdgeDetector leftEdges = detectLeftTextEdges(chunks);
-      StraightEdgeDetector rightEdges = detectRightTextEdges(chunks);
+        List<TextChunk> chunks = TextElement.mergeWords(pageTextCopy);
+        leftEdges.countLeftEdges(chunks);
+        rightEdges.countRightEdges(chunks);
+      }
 
       // return the detector with the least edges. ragged edges should produce
       // many more edges, so this should select the side with straight edges
@@ -72,26 +141,31 @@ public class StraightEdgeDetector {
 
     public static StraightEdgeDetector detectLeftTextEdges(List<TextChunk> chunks) {
       StraightEdgeDetector detector = new StraightEdgeDetector();
-      for (TextChunk chunk: chunks) {
-          Float left = new Float(chunk.getLeft());
-          detector.countEdge(left);
-      }
-
+      detector.countLeftEdges(chunks);
       return detector;
     }
 
     public static StraightEdgeDetector detectRightTextEdges(List<TextChunk> chunks) {
       StraightEdgeDetector detector = new StraightEdgeDetector();
-      for (TextChunk chunk: chunks) {
-          Float left = new Float(chunk.getRight());
-          detector.countEdge(left);
-      }
-
+      detector.countRightEdges(chunks);
       return detector;
     }
 
-    private int getCurrentEdgeCount(Float key) {
-      if (!edgeCounts.containsKey(key)) edgeCounts.put(key, new Integer(0));
-      return edgeCounts.get(key).intValue();
+    // adds an empty bucket to the histogram, for its first edge
+    private int addBucket(int bucket, float edge) {
+      int i = distinctEdges++;
+      if (i == buckets.length) {
+        int length = 2 * i;
+        buckets = Arrays.copyOf(buckets, length);
+        edgeCounts = Arrays.copyOf(edgeCounts, length);
+        minEdges = Arrays.copyOf(minEdges, length);
+        maxEdges = Arrays.copyOf(maxEdges, length);
+        edgeSums = Arrays.copyOf(edgeSums, length);
+      }
+      buckets[i] = bucket;
+      minEdges[i] = edge;
+      maxEdges[i] = edge;
+      slots.put(bucket, i, -1);
+      return i;
     }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.TreeMap;
 
 import technology.tabula.extractors.ExtractionAlgorithm;
+import technology.tabula.extractors.PageTriage;
 
 @SuppressWarnings("serial")
 public class Table extends Rectangle {
@@ -87,6 +88,7 @@ public class Table extends Rectangle {
     CellContainer cellContainer = new CellContainer();
     Page page;
     ExtractionAlgorithm extractionAlgorithm;
+    PageTriage.Decision pageTriage;
     List<List<RectangularTextContainer>> rows = null;
     
     public Table() {
@@ -136,6 +138,17 @@ public class Table extends Rectangle {
     public ExtractionAlgorithm getExtractionAlgorithm() {
         return extractionAlgorithm;
     }
+
+    public void setPageTriage(PageTriage.Decision pageTriage) {
+        this.pageTriage = pageTriage;
+    }
+
+    /**
+     * @return how the page of this table was triaged before extraction, or null if it wasn't
+     */
+    public PageTriage.Decision getPageTriage() {
+        return pageTriage;
+    }
     
     public List<RectangularTextContainer> getCells() {
         return (List<RectangularTextContainer>) new ArrayList<RectangularTextContainer>(this.cellContainer.values());
@@ -1,6 +1,7 @@
 package technology.tabula;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -10,7 +11,6 @@ import java.util.List;
 public class TableWithRulingLines extends Table {
 
     List<Ruling> verticalRulings, horizontalRulings;
-    RectangleSpatialIndex<Cell> si = new RectangleSpatialIndex<Cell>();
     
     public TableWithRulingLines() {
         super();
@@ -33,29 +33,158 @@ public class TableWithRulingLines extends Table {
             return;
         } 
         
+        Rectangle bounds = new Rectangle();
+        bounds.setRect(cells.get(0));
         for (Cell ce: cells) {
-            si.add(ce);
+            bounds.merge(ce);
         }
         
         List<List<Cell>> rowsOfCells = rowsOfCells(cells);
+        int[] startColumns = startColumns(rowsOfCells, bounds);
         for (int i = 0; i < rowsOfCells.size(); i++) {
-            List<Cell> row = rowsOfCells.get(i);
-            Iterator<Cell> rowCells = row.iterator();
-            Cell cell = rowCells.next();
-            List<List<Cell>> others = rowsOfCells(
-                    si.contains(
-                            new Rectangle(cell.getBottom(), si.getBounds().getLeft(), cell.getLeft() - si.getBounds().getLeft(), 
-                                    si.getBounds().getBottom() - cell.getBottom())
-                            ));
-            int startColumn = 0;
-            for (List<Cell> r: others) {
-                startColumn = Math.max(startColumn, r.size());
+            int startColumn = startColumns[i];
+            for (Cell cell: rowsOfCells.get(i)) {
+                this.add(cell, i, startColumn++);
             }
-            this.add(cell, i, startColumn++);
-            while (rowCells.hasNext()) {
-                this.add(rowCells.next(), i, startColumn++);
+        }
+    }
+    
+    /**
+     * The first cell of each row goes to the column after the cells to its left, in the row
+     * below it that has the most of them. That is, for each row, the largest number of cells
+     * of a single row that lie in the part of the table below the row's first cell and left of it.
+     *
+     * Right edges of the cells are the columns of a lattice. Going from the bottom up, each
+     * cell is added to the running count of its row for every lattice column at or right of
+     * its right edge, and the best count for each column is kept, so each row's start column
+     * is a lookup: O(n log n + n * columns) instead of a spatial index query per row.
+     *
+     * The bottom of that part of the table is computed as the spatial index query did, so it can
+     * be an ulp above or below the bottom of the table, leaving out the cells that end there.
+     * Those bottoms only take a few distinct values, and the rows are swept once for each, with
+     * the cells that end above it.
+     */
+    private static int[] startColumns(List<List<Cell>> rowsOfCells, Rectangle bounds) {
+        int rowCount = rowsOfCells.size();
+
+        // the part of the table below and left of the first cell of each row,
+        // with float bounds as in RectangleSpatialIndex
+        float[] queryTops = new float[rowCount], queryRights = new float[rowCount], queryBottoms = new float[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            Cell first = rowsOfCells.get(i).get(0);
+            Rectangle query = new Rectangle(first.getBottom(), bounds.getLeft(), first.getLeft() - bounds.getLeft(),
+                    bounds.getBottom() - first.getBottom());
+            queryTops[i] = (float) query.getY();
+            queryRights[i] = (float) (query.getX() + query.getWidth());
+            queryBottoms[i] = (float) (query.getY() + query.getHeight());
+        }
+
+        // cells, bottom-up
+        int n = 0;
+        for (List<Cell> row: rowsOfCells) {
+            n += row.size();
+        }
+        long[] keys = new long[n];
+        float[] cellTops = new float[n], cellRights = new float[n], cellBottoms = new float[n];
+        int[] cellRows = new int[n];
+        int k = 0;
+        for (int i = 0; i < rowCount; i++) {
+            for (Cell c: rowsOfCells.get(i)) {
+                cellTops[k] = c.getTop();
+                cellRights[k] = (float) (c.getX() + c.getWidth());
+                cellBottoms[k] = (float) (c.getY() + c.getHeight());
+                cellRows[k] = i;
+                keys[k] = descendingKey(cellTops[k], k);
+                k++;
+            }
+        }
+        Arrays.sort(keys);
+        float[] tops = new float[n], rights = new float[n], bottoms = new float[n];
+        int[] rowOf = new int[n];
+        for (k = 0; k < n; k++) {
+            int c = LongIntHashMap.unpackLow(keys[k]);
+            tops[k] = cellTops[c];
+            rights[k] = cellRights[c];
+            bottoms[k] = cellBottoms[c];
+            rowOf[k] = cellRows[c];
+        }
+
+        float[] columns = rights.clone();
+        Arrays.sort(columns);
+        int columnCount = distinct(columns);
+
+        // rows, by the top of their query, bottom-up
+        long[] queryKeys = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            queryKeys[i] = descendingKey(queryTops[i], i);
+        }
+        Arrays.sort(queryKeys);
+
+        float[] sweepBottoms = queryBottoms.clone();
+        Arrays.sort(sweepBottoms);
+        int sweepCount = distinct(sweepBottoms);
+
+        int[] rv = new int[rowCount];
+        int[][] countsByRow = new int[rowCount][];
+        int[] best = new int[columnCount];
+        for (int sweep = 0; sweep < sweepCount; sweep++) {
+            float bottom = sweepBottoms[sweep];
+            Arrays.fill(countsByRow, null);
+            Arrays.fill(best, 0);
+            int next = 0;
+            for (long queryKey: queryKeys) {
+                int q = LongIntHashMap.unpackLow(queryKey);
+                if (queryBottoms[q] != bottom) {
+                    continue;
+                }
+                for (; next < n && tops[next] >= queryTops[q]; next++) {
+                    if (bottoms[next] > bottom) {
+                        continue;
+                    }
+                    int row = rowOf[next];
+                    if (countsByRow[row] == null) {
+                        countsByRow[row] = new int[columnCount];
+                    }
+                    int[] counts = countsByRow[row];
+                    for (int j = Arrays.binarySearch(columns, 0, columnCount, rights[next]); j < columnCount; j++) {
+                        best[j] = Math.max(best[j], ++counts[j]);
+                    }
+                }
+                int j = upperBound(columns, columnCount, queryRights[q]) - 1;
+                rv[q] = j >= 0 ? best[j] : 0;
+            }
+        }
+        return rv;
+    }
+
+    // a key that sorts values in descending order, then index in ascending order
+    private static long descendingKey(float value, int index) {
+        return LongIntHashMap.pack(~OrientedRulings.sortableBits(value + 0f), index);
+    }
+
+    // moves the distinct values of sorted to its beginning, and returns how many there are
+    private static int distinct(float[] sorted) {
+        int count = 0;
+        for (int k = 0; k < sorted.length; k++) {
+            if (count == 0 || sorted[k] != sorted[count - 1]) {
+                sorted[count++] = sorted[k];
+            }
+        }
+        return count;
+    }
+
+    private static int upperBound(float[] sorted, int count, float value) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
             }
         }
+        return lo;
     }
     
     private static List<List<Cell>> rowsOfCells(List<Cell> cells) {
@@ -0,0 +1,156 @@
+package technology.tabula;
+
+import java.util.List;
+
+/**
+ * Summed-area table of the area glyphs cover on a grid of square cells over a page, so
+ * that how much text there is in any rectangle is answered in constant time, without
+ * looking at the glyphs.
+ *
+ * Coverage of whole cells is exact. Rectangles that cut through cells are assumed to cover
+ * a part of the glyphs of those cells proportional to the part of the cells they cover, so
+ * smaller cells give closer answers, at the cost of a larger table. White space glyphs
+ * don't cover anything.
+ */
+public class TextDensityIndex {
+
+    public static final float DEFAULT_CELL_SIZE = 2f;
+
+    // areas are summed exactly in 1/UNITS of a square point
+    private static final int UNITS = 256;
+
+    private final float left, top, cellSize;
+    private final int columns, rows;
+    // sums[r * (columns + 1) + c] is the area covered in the first r rows of the first c columns
+    private final long[] sums;
+
+    /**
+     * @param bounds area of the page the index covers; glyphs outside of it are ignored
+     * @param cellSize width and height of the cells of the grid, in points
+     */
+    public TextDensityIndex(Rectangle bounds, List<TextElement> texts, float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive, got " + cellSize);
+        }
+        this.left = bounds.getLeft();
+        this.top = bounds.getTop();
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+
+        int stride = this.columns + 1;
+        this.sums = new long[(this.rows + 1) * stride];
+        for (TextElement te : texts) {
+            if (te.getText().trim().isEmpty()) {
+                continue;
+            }
+            this.addCoverage(te, bounds);
+        }
+        // the coverage of each cell was added at the slot of its bottom right corner
+        for (int r = 1; r <= this.rows; r++) {
+            long rowSum = 0;
+            for (int c = 1; c <= this.columns; c++) {
+                rowSum += this.sums[r * stride + c];
+                this.sums[r * stride + c] = this.sums[(r - 1) * stride + c] + rowSum;
+            }
+        }
+    }
+
+    // adds the area te covers in each cell to that cell, rounded up so that no covered cell is left empty
+    private void addCoverage(TextElement te, Rectangle bounds) {
+        double l = Math.max(te.getLeft(), bounds.getLeft()), r = Math.min(te.getRight(), bounds.getRight());
+        double t = Math.max(te.getTop(), bounds.getTop()), b = Math.min(te.getBottom(), bounds.getBottom());
+        if (l >= r || t >= b) {
+            return;
+        }
+        int firstColumn = this.cellOf(l - this.left, this.columns - 1), lastColumn = this.cellOf(r - this.left, this.columns - 1);
+        int firstRow = this.cellOf(t - this.top, this.rows - 1), lastRow = this.cellOf(b - this.top, this.rows - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            double height = Math.min(b, this.top + (row + 1) * (double) this.cellSize) - Math.max(t, this.top + row * (double) this.cellSize);
+            if (height <= 0) {
+                continue;
+            }
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                double width = Math.min(r, this.left + (column + 1) * (double) this.cellSize) - Math.max(l, this.left + column * (double) this.cellSize);
+                if (width > 0) {
+                    this.sums[(row + 1) * (this.columns + 1) + column + 1] += (long) Math.ceil(width * height * UNITS);
+                }
+            }
+        }
+    }
+
+    private int cellOf(double offset, int last) {
+        return Math.max(0, Math.min(last, (int) Math.floor(offset / this.cellSize)));
+    }
+
+    public float getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * @return the area glyphs cover in area, in square points
+     */
+    public float getCoverage(Rectangle area) {
+        double c1 = this.column(area.getLeft()), c2 = this.column(area.getRight());
+        double r1 = this.row(area.getTop()), r2 = this.row(area.getBottom());
+        if (c1 >= c2 || r1 >= r2) {
+            return 0;
+        }
+        double rv = this.sumAt(r2, c2) - this.sumAt(r1, c2) - this.sumAt(r2, c1) + this.sumAt(r1, c1);
+        return (float) Math.max(0, rv / UNITS);
+    }
+
+    /**
+     * @return the fraction of area that glyphs cover
+     */
+    public float getDensity(Rectangle area) {
+        double size = area.getWidth() * area.getHeight();
+        return size > 0 ? (float) Math.min(1, this.getCoverage(area) / size) : 0;
+    }
+
+    /**
+     * @return whether some glyph certainly overlaps area: one covers some of the cells
+     * entirely in area
+     */
+    public boolean hasTextInside(Rectangle area) {
+        return this.cellSum((int) Math.ceil(this.row(area.getTop())), (int) Math.ceil(this.column(area.getLeft())),
+                            (int) Math.floor(this.row(area.getBottom())), (int) Math.floor(this.column(area.getRight()))) > 0;
+    }
+
+    /**
+     * @return whether some glyph may overlap area: one covers some of the cells area
+     * overlaps. Glyphs certainly don't overlap area otherwise
+     */
+    public boolean mayHaveText(Rectangle area) {
+        return this.cellSum((int) Math.floor(this.row(area.getTop())), (int) Math.floor(this.column(area.getLeft())),
+                            (int) Math.ceil(this.row(area.getBottom())), (int) Math.ceil(this.column(area.getRight()))) > 0;
+    }
+
+    // position of x in columns, clamped to the grid
+    private double column(double x) {
+        return Math.max(0, Math.min(this.columns, (x - this.left) / this.cellSize));
+    }
+
+    private double row(double y) {
+        return Math.max(0, Math.min(this.rows, (y - this.top) / this.cellSize));
+    }
+
+    // sum of the cells of rows r1..r2 - 1 and columns c1..c2 - 1
+    private long cellSum(int r1, int c1, int r2, int c2) {
+        if (r1 >= r2 || c1 >= c2) {
+            return 0;
+        }
+        int stride = this.columns + 1;
+        return this.sums[r2 * stride + c2] - this.sums[r1 * stride + c2] - this.sums[r2 * stride + c1] + this.sums[r1 * stride + c1];
+    }
+
+    // the summed-area table at fractional row r and column c, interpolated between its slots
+    private double sumAt(double r, double c) {
+        int r0 = Math.min((int) r, this.rows - 1), c0 = Math.min((int) c, this.columns - 1);
+        double fr = r - r0, fc = c - c0;
+        int stride = this.columns + 1;
+        int i = r0 * stride + c0;
+        return (this.sums[i] * (1 - fc) + this.sums[i + 1] * fc) * (1 - fr)
+                + (this.sums[i + stride] * (1 - fc) + this.sums[i + stride + 1] * fc) * fr;
+    }
+}
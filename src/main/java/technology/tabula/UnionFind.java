@@ -0,0 +1,44 @@
+package technology.tabula;
+
+/**
+ * Disjoint sets of the ints 0 to size - 1, joined by union by size, with path halving.
+ */
+public final class UnionFind {
+
+    private final int[] parent;
+    private final int[] groupSize;
+
+    public UnionFind(int size) {
+        this.parent = new int[size];
+        this.groupSize = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.parent[i] = i;
+            this.groupSize[i] = 1;
+        }
+    }
+
+    /**
+     * @return the representative of the set of i, the same for every int of that set
+     */
+    public int find(int i) {
+        while (this.parent[i] != i) {
+            this.parent[i] = this.parent[this.parent[i]]; // path halving
+            i = this.parent[i];
+        }
+        return i;
+    }
+
+    public void union(int a, int b) {
+        int rootA = this.find(a), rootB = this.find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (this.groupSize[rootA] < this.groupSize[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        this.parent[rootB] = rootA;
+        this.groupSize[rootA] += this.groupSize[rootB];
+    }
+}
@@ -2,7 +2,6 @@ package technology.tabula;
 
 import java.awt.Shape;
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.math.BigDecimal;
 import java.util.*;
@@ -185,89 +184,76 @@ public class Utils {
         return rv;
     }
 
+    /**
+     * Moves the end points of rulings that are closer than xThreshold (yThreshold) along
+     * the x (y) axis to the average of their coordinates.
+     *
+     * Points are sorted by coordinate and each one joins the group of the points before it if
+     * it's within the threshold of the first point of that group. As always, the last point
+     * along each axis is left where it is, and points with the same y are taken in x order.
+     */
     public static void snapPoints(List<? extends Line2D.Float> rulings, float xThreshold, float yThreshold) {
-
-        // collect points and keep a Line -> p1,p2 map
-        Map<Line2D.Float, Point2D[]> linesToPoints = new HashMap<Line2D.Float, Point2D[]>();
-        List<Point2D> points = new ArrayList<Point2D>();
-        for (Line2D.Float r: rulings) {
-            Point2D p1 = r.getP1();
-            Point2D p2 = r.getP2();
-            linesToPoints.put(r, new Point2D[] { p1, p2 });
-            points.add(p1);
-            points.add(p2);
+        int n = rulings.size();
+        float[] xs = new float[2 * n], ys = new float[2 * n];
+        for (int i = 0; i < n; i++) {
+            Line2D.Float r = rulings.get(i);
+            xs[2 * i] = r.x1;
+            ys[2 * i] = r.y1;
+            xs[2 * i + 1] = r.x2;
+            ys[2 * i + 1] = r.y2;
         }
 
-        // snap by X
-        Collections.sort(points, new Comparator<Point2D>() {
-            @Override
-            public int compare(Point2D arg0, Point2D arg1) {
-                return java.lang.Double.compare(arg0.getX(), arg1.getX());
-            }
-        });
-
-        List<List<Point2D>> groupedPoints = new ArrayList<List<Point2D>>();
-        groupedPoints.add(new ArrayList<Point2D>(Arrays.asList(new Point2D[] { points.get(0) })));
-
-        for (Point2D p: points.subList(1, points.size() - 1)) {
-            List<Point2D> last = groupedPoints.get(groupedPoints.size() - 1);
-            if (Math.abs(p.getX() - last.get(0).getX()) < xThreshold) {
-                groupedPoints.get(groupedPoints.size() - 1).add(p);
-            }
-            else {
-                groupedPoints.add(new ArrayList<Point2D>(Arrays.asList(new Point2D[] { p })));
-            }
-        }
+        // points with the same y are taken in x order
+        snap(ys, yThreshold, snap(xs, xThreshold, null));
 
-        for(List<Point2D> group: groupedPoints) {
-            float avgLoc = 0;
-            for(Point2D p: group) {
-                avgLoc += p.getX();
-            }
-            avgLoc /= group.size();
-            for(Point2D p: group) {
-                p.setLocation(avgLoc, p.getY());
-            }
+        for (int i = 0; i < n; i++) {
+            rulings.get(i).setLine(xs[2 * i], ys[2 * i], xs[2 * i + 1], ys[2 * i + 1]);
         }
-        // ---
-
-        // snap by Y
-        Collections.sort(points, new Comparator<Point2D>() {
-            @Override
-            public int compare(Point2D arg0, Point2D arg1) {
-                return java.lang.Double.compare(arg0.getY(), arg1.getY());
-            }
-        });
+    }
 
-        groupedPoints = new ArrayList<List<Point2D>>();
-        groupedPoints.add(new ArrayList<Point2D>(Arrays.asList(new Point2D[] { points.get(0) })));
+    /**
+     * Replaces each group of close values by their average, in place. Values are grouped in
+     * ascending order: a value that is within threshold of the first (lowest) value of
+     * the current group joins it, any other one starts a new group. The highest value is never
+     * grouped nor moved, as the extracted tables have always been laid out that way.
+     */
+    public static void snap(float[] values, float threshold) {
+        snap(values, threshold, null);
+    }
 
-        for (Point2D p: points.subList(1, points.size() - 1)) {
-            List<Point2D> last = groupedPoints.get(groupedPoints.size() - 1);
-            if (Math.abs(p.getY() - last.get(0).getY()) < yThreshold) {
-                groupedPoints.get(groupedPoints.size() - 1).add(p);
-            }
-            else {
-                groupedPoints.add(new ArrayList<Point2D>(Arrays.asList(new Point2D[] { p })));
-            }
+    // snaps values taking equal ones in the order of the indexes in order (or in index order if
+    // it's null), and returns the indexes of values in the order they were taken in
+    private static int[] snap(float[] values, float threshold, int[] order) {
+        int n = values.length;
+        long[] sorted = new long[n];
+        for (int k = 0; k < n; k++) {
+            int i = order == null ? k : order[k];
+            sorted[k] = LongIntHashMap.pack(OrientedRulings.sortableBits(values[i]), k);
+        }
+        Arrays.sort(sorted);
+        int[] indexes = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = LongIntHashMap.unpackLow(sorted[k]);
+            indexes[k] = order == null ? i : order[i];
         }
 
-        for(List<Point2D> group: groupedPoints) {
-            float avgLoc = 0;
-            for(Point2D p: group) {
-                avgLoc += p.getY();
+        int groupStart = 0;
+        for (int k = 1; k < n; k++) {
+            if (k < n - 1 && Math.abs((double) values[indexes[k]] - values[indexes[groupStart]]) < threshold) {
+                continue;
             }
-            avgLoc /= group.size();
-            for(Point2D p: group) {
-                p.setLocation(p.getX(), avgLoc);
+            if (k - groupStart > 1) {
+                float average = 0;
+                for (int g = groupStart; g < k; g++) {
+                    average += values[indexes[g]];
+                }
+                average /= k - groupStart;
+                for (int g = groupStart; g < k; g++) {
+                    values[indexes[g]] = average;
+                }
             }
+            groupStart = k;
         }
-        // ---
-
-        // finally, modify lines
-        for(Map.Entry<Line2D.Float, Point2D[]> ltp: linesToPoints.entrySet()) {
-            Point2D[] p = ltp.getValue();
-            ltp.getKey().setLine(p[0], p[1]);
-        }
+        return indexes;
     }
 }
@@ -0,0 +1,199 @@
+package technology.tabula.detectors;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+import technology.tabula.Page;
+import technology.tabula.Rectangle;
+import technology.tabula.Ruling;
+import technology.tabula.TextElement;
+
+/**
+ * Keeps the table areas another detector finds on each page in files in a directory, and reuses
+ * them when the same page is seen again, e.g. when a document is extracted again with other
+ * output options, instead of running the detector.
+ *
+ * Pages are told apart by a hash of their contents (content stream, text, rulings, images and
+ * area on the page) and of the version of the detector, so cached areas are never reused for a
+ * page that changed, or for another detector. Cache files that can't be read or written are
+ * ignored: the detector then runs as if there was no cache.
+ */
+public class CachingDetectionAlgorithm implements DetectionAlgorithm {
+
+    private static final String SUFFIX = ".areas";
+
+    private final DetectionAlgorithm detector;
+    private final String detectorVersion;
+    private final File directory;
+
+    /**
+     * @param detectorVersion tells apart versions (and settings) of detector that may find
+     *                        different areas on the same page
+     * @param directory where areas are cached; made when areas are first cached
+     */
+    public CachingDetectionAlgorithm(DetectionAlgorithm detector, String detectorVersion, File directory) {
+        this.detector = detector;
+        this.detectorVersion = detectorVersion;
+        this.directory = directory;
+    }
+
+    @Override
+    public List<Rectangle> detect(Page page) {
+        File file;
+        try {
+            file = new File(this.directory, this.pageKey(page) + SUFFIX);
+        } catch (IOException e) {
+            return this.detector.detect(page);
+        }
+
+        List<Rectangle> cached = readAreas(file);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Rectangle> areas = this.detector.detect(page);
+        writeAreas(file, areas);
+        return areas;
+    }
+
+    /**
+     * @return a hex encoded SHA-1 of the contents of page and the detector's version
+     */
+    String pageKey(Page page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available");
+        }
+        DataOutputStream out = new DataOutputStream(new DigestOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }, digest));
+
+        out.writeUTF(this.detectorVersion);
+        writeFloats(out, page.getTop(), page.getLeft(), page.getWidth(), page.getHeight());
+        out.writeInt(page.getRotation() == null ? 0 : page.getRotation());
+
+        PDStream contents = page.getPDPage() == null ? null : page.getPDPage().getContents();
+        if (contents != null) {
+            out.write(contents.getByteArray());
+        }
+        if (page.getText() != null) {
+            for (TextElement te : page.getText()) {
+                writeFloats(out, te.getTop(), te.getLeft(), te.getWidth(), te.getHeight());
+                out.writeUTF(te.getText());
+            }
+        }
+        out.writeChar('|');
+        if (page.getUnprocessedRulings() != null) {
+            for (Ruling r : page.getUnprocessedRulings()) {
+                writeFloats(out, r.x1, r.y1, r.x2, r.y2);
+            }
+        }
+        out.writeChar('|');
+        for (Rectangle image : page.getImageAreas()) {
+            writeFloats(out, image.getTop(), image.getLeft(), image.getWidth(), image.getHeight());
+        }
+        out.flush();
+
+        StringBuilder rv = new StringBuilder();
+        for (byte b : digest.digest()) {
+            rv.append(String.format("%02x", b & 0xff));
+        }
+        return rv.toString();
+    }
+
+    private static void writeFloats(DataOutputStream out, double... values) throws IOException {
+        for (double v : values) {
+            out.writeFloat((float) v);
+        }
+    }
+
+    // the areas in file, one top,left,width,height per line, or null if there's no such file or it can't be read
+    private static List<Rectangle> readAreas(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            List<Rectangle> rv = new ArrayList<Rectangle>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] f = line.split(",");
+                if (f.length != 4) {
+                    return null;
+                }
+                rv.add(new Rectangle(Float.parseFloat(f[0]), Float.parseFloat(f[1]),
+                                     Float.parseFloat(f[2]), Float.parseFloat(f[3])));
+            }
+            return rv;
+        } catch (IOException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    // written to a temporary file first, so that other runs never read half a file
+    private void writeAreas(File file, List<Rectangle> areas) {
+        File tmp = null;
+        Writer writer = null;
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                return;
+            }
+            tmp = File.createTempFile(file.getName(), ".tmp", this.directory);
+            writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            for (Rectangle area : areas) {
+                writer.write(area.getTop() + "," + area.getLeft() + "," + area.width + "," + area.height + "\n");
+            }
+            writer.close();
+            writer = null;
+            if (!tmp.renameTo(file)) {
+                // some platforms don't rename over existing files
+                file.delete();
+                tmp.renameTo(file);
+            }
+        } catch (IOException e) {
+            // not cached then
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+            if (tmp != null && tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package technology.tabula.detectors;
+
+import org.apache.pdfbox.pdfviewer.PageDrawer;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.util.TextPosition;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+/**
+ * Renders a page in a single pass into two images: the page without its text, and the
+ * page as PDPage.convertToImage draws it.
+ *
+ * Text is drawn into a transparent layer of its own as it's found, and the layer is laid over
+ * a copy of the image without text at the end, so text ends up on top of any graphics
+ * drawn after it. Neither the page nor its document are modified.
+ */
+class LayeredPageDrawer extends PageDrawer {
+
+    private static final Color TRANSPARENT_WHITE = new Color(255, 255, 255, 0);
+
+    /**
+     * The two images of a rendered page
+     */
+    static final class Layers {
+        public final BufferedImage withoutText;
+        public final BufferedImage withText;
+
+        public Layers(BufferedImage withoutText, BufferedImage withText) {
+            this.withoutText = withoutText;
+            this.withText = withText;
+        }
+    }
+
+    private final Graphics2D textGraphics;
+    private final Field graphicsField;
+
+    private LayeredPageDrawer(Graphics2D textGraphics) throws IOException {
+        super();
+        this.textGraphics = textGraphics;
+
+        // PageDrawer draws everything on its private graphics; text is redirected by swapping it
+        Field field;
+        try {
+            field = PageDrawer.class.getDeclaredField("graphics");
+            field.setAccessible(true);
+        }
+        catch (Exception e) {
+            field = null;
+        }
+        this.graphicsField = field;
+    }
+
+    /**
+     * Renders page at resolution dpi into images of imageType, as PDPage.convertToImage does
+     */
+    public static Layers render(PDPage page, int imageType, int resolution) throws IOException {
+        return render(page, imageType, resolution, null);
+    }
+
+    /**
+     * Renders the region of page at resolution dpi into images of imageType. region is in the
+     * pixels of the whole page image, as rendered by render(page, imageType, resolution);
+     * null renders the whole page
+     */
+    public static Layers render(PDPage page, int imageType, int resolution, Rectangle region) throws IOException {
+        PDRectangle cropBox = page.findCropBox();
+        float widthPt = cropBox.getWidth();
+        float heightPt = cropBox.getHeight();
+        float scaling = resolution / 72f;
+        int widthPx = Math.round(widthPt * scaling);
+        int heightPx = Math.round(heightPt * scaling);
+        Dimension pageDimension = new Dimension((int) widthPt, (int) heightPt);
+
+        int rotation = page.findRotation();
+        if (rotation < 0) {
+            rotation += 360;
+        }
+        else if (rotation >= 360) {
+            rotation -= 360;
+        }
+        boolean sideways = rotation == 90 || rotation == 270;
+        int pageWidth = sideways ? heightPx : widthPx;
+        int pageHeight = sideways ? widthPx : heightPx;
+        if (region == null) {
+            region = new Rectangle(0, 0, pageWidth, pageHeight);
+        }
+        int imageWidth = region.width;
+        int imageHeight = region.height;
+
+        BufferedImage withoutText = new BufferedImage(imageWidth, imageHeight, imageType);
+        BufferedImage text = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = prepare(withoutText, TRANSPARENT_WHITE, region, pageWidth, pageHeight, rotation, scaling);
+        Graphics2D textGraphics = prepare(text, new Color(0, 0, 0, 0), region, pageWidth, pageHeight, rotation, scaling);
+        textGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        textGraphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+        LayeredPageDrawer drawer = new LayeredPageDrawer(textGraphics);
+        try {
+            drawer.drawPage(graphics, page, pageDimension);
+        }
+        finally {
+            drawer.dispose();
+            graphics.dispose();
+            textGraphics.dispose();
+        }
+
+        BufferedImage withText = new BufferedImage(imageWidth, imageHeight, imageType);
+        Graphics2D g = withText.createGraphics();
+        g.drawImage(withoutText, 0, 0, null);
+        g.drawImage(text, 0, 0, null);
+        g.dispose();
+
+        return new Layers(withoutText, withText);
+    }
+
+    private static Graphics2D prepare(BufferedImage image, Color background, Rectangle region,
+                                      int pageWidth, int pageHeight, int rotation, float scaling) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setBackground(background);
+        graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.translate(-region.x, -region.y);
+        if (rotation != 0) {
+            int translateX = 0;
+            int translateY = 0;
+            switch (rotation) {
+                case 90:
+                    translateX = pageWidth;
+                    break;
+                case 270:
+                    translateY = pageHeight;
+                    break;
+                case 180:
+                    translateX = pageWidth;
+                    translateY = pageHeight;
+                    break;
+                default:
+                    break;
+            }
+            graphics.translate(translateX, translateY);
+            graphics.rotate((float) Math.toRadians(rotation));
+        }
+        graphics.scale(scaling, scaling);
+        return graphics;
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        if (this.graphicsField == null) {
+            // can't redirect text, so leave it out of both images
+            return;
+        }
+        Object pageGraphics;
+        try {
+            pageGraphics = this.graphicsField.get(this);
+            this.graphicsField.set(this, this.textGraphics);
+        }
+        catch (IllegalAccessException e) {
+            return;
+        }
+        try {
+            super.processTextPosition(text);
+        }
+        finally {
+            try {
+                this.graphicsField.set(this, pageGraphics);
+            }
+            catch (IllegalAccessException e) {
+            }
+        }
+    }
+}
@@ -1,22 +1,26 @@
 package technology.tabula.detectors;
 
-import org.apache.pdfbox.pdfparser.PDFStreamParser;
-import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.common.PDStream;
-import org.apache.pdfbox.util.PDFOperator;
 import technology.tabula.*;
 import technology.tabula.Rectangle;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
+import java.awt.image.SampleModel;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by matt on 2015-12-17.
@@ -27,6 +31,10 @@ import java.util.List;
  */
 public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
 
+    // version of the detection, for caches of detected areas: bump it with any change that
+    // may find other areas on the same page
+    public static final int VERSION = 1;
+
     private static final int GRAYSCALE_INTENSITY_THRESHOLD = 25;
     private static final int HORIZONTAL_EDGE_WIDTH_MINIMUM = 50;
     private static final int VERTICAL_EDGE_HEIGHT_MINIMUM = 10;
@@ -37,6 +45,28 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
     private static final int REQUIRED_CELLS_FOR_TABLE = 4;
     private static final float IDENTICAL_TABLE_OVERLAP_RATIO = 0.9f;
 
+    // the pixel thresholds above are for images rendered at this resolution, and scaled for others
+    public static final int DEFAULT_RESOLUTION = 144;
+
+    // in coarse to fine mode, candidate edges are looked for at this fraction of the resolution,
+    // with thresholds lowered by CANDIDATE_LENIENCY because lines come out fainter and shorter there
+    private static final int COARSE_RESOLUTION_DIVISOR = 2;
+    private static final float CANDIDATE_LENIENCY = 0.5f;
+    // space (in points) kept around candidate edges when refining them at full resolution
+    private static final float CANDIDATE_REGION_PADDING = 8f;
+    // past this many candidate regions, or half the page, the whole page is refined in one go
+    private static final int MAXIMUM_CANDIDATE_REGIONS = 4;
+
+    // with parallelism, images are scanned in bands of at least this many rows (or columns)
+    private static final int MINIMUM_BAND_SIZE = 64;
+
+    // in automatic mode, pages with images covering more than this fraction of them are rendered:
+    // ruling lines in images (scans, pictures of tables) are only seen there
+    private static final float LARGE_IMAGE_AREA_RATIO = 0.1f;
+
+    // pixel coordinates are packed in 21 bits each
+    private static final int EDGE_COORDINATE_MASK = (1 << 21) - 1;
+
     /**
      * Helper class that encapsulates a text edge
      */
@@ -48,6 +78,8 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         public static final int NUM_TYPES = 3;
 
         public int intersectingTextRowCount;
+        // number of chunks of text on the edge; intersectingTextRowCount is this, at most the number of rows
+        public int chunkCount;
 
         public TextEdge(float x1, float y1, float x2, float y2) {
             super(x1, y1, x2, y2);
@@ -67,6 +99,207 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         }
     }
 
+    /**
+     * Text edges that are still being extended while going down the text rows of a page:
+     * the number of chunks of text on each one, the top of its first chunk and the bottom of
+     * its last, in arrays sorted by the edge's x
+     */
+    private static final class OpenTextEdges {
+        private int size;
+        private int[] keys = new int[16];
+        private int[] counts = new int[16];
+        private float[] tops = new float[16];
+        private float[] bottoms = new float[16];
+
+        public void add(int key, float top, float bottom) {
+            int i = Arrays.binarySearch(this.keys, 0, this.size, key);
+            if (i >= 0) {
+                this.counts[i]++;
+                this.bottoms[i] = bottom;
+                return;
+            }
+
+            i = -(i + 1);
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.counts = Arrays.copyOf(this.counts, capacity);
+                this.tops = Arrays.copyOf(this.tops, capacity);
+                this.bottoms = Arrays.copyOf(this.bottoms, capacity);
+            }
+            int moved = this.size - i;
+            System.arraycopy(this.keys, i, this.keys, i + 1, moved);
+            System.arraycopy(this.counts, i, this.counts, i + 1, moved);
+            System.arraycopy(this.tops, i, this.tops, i + 1, moved);
+            System.arraycopy(this.bottoms, i, this.bottoms, i + 1, moved);
+            this.keys[i] = key;
+            this.counts[i] = 1;
+            this.tops[i] = top;
+            this.bottoms[i] = bottom;
+            this.size++;
+        }
+
+        public OpenTextEdges copy() {
+            OpenTextEdges rv = new OpenTextEdges();
+            rv.size = this.size;
+            rv.keys = Arrays.copyOf(this.keys, this.keys.length);
+            rv.counts = Arrays.copyOf(this.counts, this.counts.length);
+            rv.tops = Arrays.copyOf(this.tops, this.tops.length);
+            rv.bottoms = Arrays.copyOf(this.bottoms, this.bottoms.length);
+            return rv;
+        }
+
+        /**
+         * Removes the edges with after < x < before, adding the ones that extend over enough
+         * lines of text to closed
+         */
+        public void closeBetween(int after, int before, List<TextEdge> closed) {
+            if (before - (long) after < 2) {
+                return;
+            }
+            int from = upperBound(after), to = upperBound(before - 1);
+            if (from == to) {
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                this.close(i, closed);
+            }
+            System.arraycopy(this.keys, to, this.keys, from, this.size - to);
+            System.arraycopy(this.counts, to, this.counts, from, this.size - to);
+            System.arraycopy(this.tops, to, this.tops, from, this.size - to);
+            System.arraycopy(this.bottoms, to, this.bottoms, from, this.size - to);
+            this.size -= to - from;
+        }
+
+        /**
+         * Adds the edges that extend over enough lines of text to closed, as if they were closed
+         * now, without removing them
+         */
+        public void addTo(List<TextEdge> closed) {
+            for (int i = 0; i < this.size; i++) {
+                this.close(i, closed);
+            }
+        }
+
+        private void close(int i, List<TextEdge> closed) {
+            if (this.counts[i] >= REQUIRED_TEXT_LINES_FOR_EDGE) {
+                TextEdge edge = new TextEdge(this.keys[i], this.tops[i], this.keys[i], this.bottoms[i]);
+                edge.chunkCount = this.counts[i];
+                closed.add(edge);
+            }
+        }
+
+        // index of the first key greater than key
+        private int upperBound(int key) {
+            int lo = 0, hi = this.size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.keys[mid] <= key) {
+                    lo = mid + 1;
+                }
+                else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * The text edges of a list of text rows, kept up to date as rows are removed from the list.
+     * Rows are scanned top to bottom, and the state of the scan is saved before each row, so only
+     * the rows from the first removed one on are scanned again
+     */
+    private static final class TextEdgeScan {
+        private final List<Line> lines;
+        private final OpenTextEdges[] openEdges = new OpenTextEdges[TextEdge.NUM_TYPES];
+        private final List<List<TextEdge>> closedEdges = new ArrayList<List<TextEdge>>(TextEdge.NUM_TYPES);
+        // for each row scanned so far, the open edges and the number of closed edges before it
+        private final List<OpenTextEdges[]> openEdgesBefore = new ArrayList<OpenTextEdges[]>();
+        private final List<int[]> closedCountsBefore = new ArrayList<int[]>();
+
+        public TextEdgeScan(List<Line> lines) {
+            this.lines = lines;
+            for (int type = 0; type < TextEdge.NUM_TYPES; type++) {
+                this.openEdges[type] = new OpenTextEdges();
+                this.closedEdges.add(new ArrayList<TextEdge>());
+            }
+        }
+
+        /**
+         * @param firstChangedRow index of the first row of lines that was removed since the last
+         *                        call; rows before it must not have changed
+         * @return all text edges (lines that align with the left, middle and right of chunks of text)
+         *         that extend uninterrupted over at least REQUIRED_TEXT_LINES_FOR_EDGE lines of text
+         */
+        public TextEdges getTextEdges(int firstChangedRow) {
+            if (firstChangedRow < this.openEdgesBefore.size()) {
+                // go back to where the scan was before that row
+                OpenTextEdges[] savedEdges = this.openEdgesBefore.get(firstChangedRow);
+                int[] savedCounts = this.closedCountsBefore.get(firstChangedRow);
+                for (int type = 0; type < TextEdge.NUM_TYPES; type++) {
+                    this.openEdges[type] = savedEdges[type].copy();
+                    List<TextEdge> closed = this.closedEdges.get(type);
+                    closed.subList(savedCounts[type], closed.size()).clear();
+                }
+                this.openEdgesBefore.subList(firstChangedRow, this.openEdgesBefore.size()).clear();
+                this.closedCountsBefore.subList(firstChangedRow, this.closedCountsBefore.size()).clear();
+            }
+
+            for (int row = this.openEdgesBefore.size(); row < this.lines.size(); row++) {
+                OpenTextEdges[] savedEdges = new OpenTextEdges[TextEdge.NUM_TYPES];
+                int[] savedCounts = new int[TextEdge.NUM_TYPES];
+                for (int type = 0; type < TextEdge.NUM_TYPES; type++) {
+                    savedEdges[type] = this.openEdges[type].copy();
+                    savedCounts[type] = this.closedEdges.get(type).size();
+                }
+                this.openEdgesBefore.add(savedEdges);
+                this.closedCountsBefore.add(savedCounts);
+
+                this.scan(this.lines.get(row));
+            }
+
+            // the closed edges, and the leftovers
+            List<List<TextEdge>> rv = new ArrayList<List<TextEdge>>(TextEdge.NUM_TYPES);
+            for (int type = 0; type < TextEdge.NUM_TYPES; type++) {
+                List<TextEdge> edges = new ArrayList<TextEdge>(this.closedEdges.get(type));
+                this.openEdges[type].addTo(edges);
+                for (TextEdge edge : edges) {
+                    edge.intersectingTextRowCount = Math.min(edge.chunkCount, this.lines.size());
+                }
+                rv.add(edges);
+            }
+            return new TextEdges(rv.get(TextEdge.LEFT), rv.get(TextEdge.MID), rv.get(TextEdge.RIGHT));
+        }
+
+        private void scan(Line textRow) {
+            OpenTextEdges currLeftEdges = this.openEdges[TextEdge.LEFT];
+            OpenTextEdges currMidEdges = this.openEdges[TextEdge.MID];
+            OpenTextEdges currRightEdges = this.openEdges[TextEdge.RIGHT];
+            List<TextEdge> leftTextEdges = this.closedEdges.get(TextEdge.LEFT);
+            List<TextEdge> midTextEdges = this.closedEdges.get(TextEdge.MID);
+            List<TextEdge> rightTextEdges = this.closedEdges.get(TextEdge.RIGHT);
+
+            for (TextChunk text : textRow.getTextElements()) {
+                int left = (int)Math.floor(text.getLeft());
+                int right = (int)Math.floor(text.getRight());
+                int mid = left + ((right - left)/2);
+
+                // first put this chunk into any edge buckets it belongs to
+                currLeftEdges.add(left, text.getTop(), text.getBottom());
+                currMidEdges.add(mid, text.getTop(), text.getBottom());
+                currRightEdges.add(right, text.getTop(), text.getBottom());
+
+                // now see if this text chunk blows up any other edges: the ones strictly between its left and right,
+                // apart from mid edges within 2 of its own mid
+                currLeftEdges.closeBetween(left, right, leftTextEdges);
+                currMidEdges.closeBetween(left, Math.min(right, mid - 2), midTextEdges);
+                currMidEdges.closeBetween(Math.max(left, mid + 2), right, midTextEdges);
+                currRightEdges.closeBetween(left, right, rightTextEdges);
+            }
+        }
+    }
+
     /**
      * Helper container for relevant text edge info
      */
@@ -80,32 +313,209 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         }
     }
 
-    @Override
-    public List<Rectangle> detect(Page page) {
+    /**
+     * Scans a band of an image for edges
+     */
+    private interface EdgeScanner {
+        PackedEdges scan(int from, int to);
+    }
 
-        // get horizontal & vertical lines
-        // we get these from an image of the PDF and not the PDF itself because sometimes there are invisible PDF
-        // instructions that are interpreted incorrectly as visible elements - we really want to capture what a
-        // person sees when they look at the PDF
-        BufferedImage image;
-        PDPage pdfPage = page.getPDPage();
-        try {
-            image = pdfPage.convertToImage(BufferedImage.TYPE_BYTE_GRAY, 144);
-        } catch (IOException e) {
-            return new ArrayList<Rectangle>();
+    /**
+     * A growable array of edges packed by packEdge
+     */
+    private static final class PackedEdges {
+        public long[] edges = new long[16];
+        public int size;
+
+        public void add(long edge) {
+            if (this.size == this.edges.length) {
+                this.edges = Arrays.copyOf(this.edges, this.size * 2);
+            }
+            this.edges[this.size++] = edge;
         }
 
-        List<Ruling> horizontalRulings = this.getHorizontalRulings(image);
+        public void addAll(PackedEdges other) {
+            if (this.size + other.size > this.edges.length) {
+                this.edges = Arrays.copyOf(this.edges, Math.max(this.size + other.size, this.size * 2));
+            }
+            System.arraycopy(other.edges, 0, this.edges, this.size, other.size);
+            this.size += other.size;
+        }
 
-        // now check the page for vertical lines, but remove the text first to make things less confusing
+        public void sort() {
+            Arrays.sort(this.edges, 0, this.size);
+        }
+    }
+
+    /**
+     * The samples of the first band of an image, as 8 bits: read straight from its data buffer
+     * when the image is laid out as one byte per pixel (as TYPE_BYTE_GRAY images are),
+     * or copied (and scaled to 0..255) into a new array otherwise
+     */
+    private static final class GrayPixels {
+        public final byte[] data;
+        public final int offset;
+        public final int stride;
+        public final int width;
+        public final int height;
+
+        public GrayPixels(BufferedImage image) {
+            Raster r = image.getRaster();
+            this.width = r.getWidth();
+            this.height = r.getHeight();
+
+            SampleModel sm = r.getSampleModel();
+            if (r.getDataBuffer() instanceof DataBufferByte && r.getNumBands() == 1
+                    && sm instanceof ComponentSampleModel && ((ComponentSampleModel) sm).getPixelStride() == 1) {
+                ComponentSampleModel csm = (ComponentSampleModel) sm;
+                DataBufferByte buffer = (DataBufferByte) r.getDataBuffer();
+                this.data = buffer.getData();
+                this.offset = buffer.getOffset() + csm.getOffset(r.getMinX() - r.getSampleModelTranslateX(),
+                                                                 r.getMinY() - r.getSampleModelTranslateY());
+                this.stride = csm.getScanlineStride();
+            }
+            else {
+                this.data = new byte[this.width * this.height];
+                this.offset = 0;
+                this.stride = this.width;
+                long maximum = (1L << sm.getSampleSize(0)) - 1;
+                int[] row = new int[this.width];
+                for (int y = 0; y < this.height; y++) {
+                    r.getSamples(r.getMinX(), r.getMinY() + y, this.width, 1, 0, row);
+                    for (int x = 0; x < this.width; x++) {
+                        this.data[y * this.width + x] = (byte) (maximum == 255 ? row[x] : row[x] * 255L / maximum);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Where ruling lines are looked for
+     */
+    public enum EdgeSource {
+        // in an image of the page, as someone looking at the page sees them
+        RASTER,
+        // in the ruling lines extracted from the page contents, without rendering it
+        VECTOR,
+        // in the extracted ruling lines, unless there are large images on the page
+        AUTOMATIC
+    }
+
+    private EdgeSource edgeSource = EdgeSource.RASTER;
+    private int resolution = DEFAULT_RESOLUTION;
+    private int imageType = BufferedImage.TYPE_BYTE_GRAY;
+    private boolean coarseToFine = false;
+
+    public EdgeSource getEdgeSource() {
+        return edgeSource;
+    }
+
+    /**
+     * @param edgeSource where ruling lines are looked for: in an image of the page (RASTER, the
+     *                   default), in the rulings of the Page (VECTOR, which is much faster but
+     *                   also picks up lines that aren't visible, and misses lines in images), or
+     *                   in the rulings of the Page unless it has large images (AUTOMATIC)
+     */
+    public void setEdgeSource(EdgeSource edgeSource) {
+        if (edgeSource == null) {
+            throw new IllegalArgumentException("edgeSource must not be null");
+        }
+        this.edgeSource = edgeSource;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @param resolution dpi pages are rendered at to look for ruling lines. Lower is faster,
+     *                   but thin or short lines may be missed
+     */
+    public void setResolution(int resolution) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("resolution must be positive, got " + resolution);
+        }
+        this.resolution = resolution;
+    }
+
+    public int getImageType() {
+        return imageType;
+    }
+
+    /**
+     * @param imageType BufferedImage type pages are rendered to: TYPE_BYTE_GRAY (the default),
+     *                  TYPE_USHORT_GRAY or TYPE_BYTE_BINARY
+     */
+    public void setImageType(int imageType) {
+        if (imageType != BufferedImage.TYPE_BYTE_GRAY && imageType != BufferedImage.TYPE_USHORT_GRAY
+                && imageType != BufferedImage.TYPE_BYTE_BINARY) {
+            throw new IllegalArgumentException("unsupported image type " + imageType);
+        }
+        this.imageType = imageType;
+    }
+
+    public boolean isCoarseToFine() {
+        return coarseToFine;
+    }
+
+    /**
+     * @param coarseToFine whether to look for candidate lines on an image of the page at a lower
+     *                     resolution first, and only render the regions around them at full
+     *                     resolution. Pages without any lines are then only rendered once, coarsely
+     */
+    public void setCoarseToFine(boolean coarseToFine) {
+        this.coarseToFine = coarseToFine;
+    }
+
+    /**
+     * @return the version of the detection and the settings that change the areas it finds, so
+     * that areas found with other ones are told apart, e.g. by CachingDetectionAlgorithm
+     */
+    public String getDetectorVersion() {
+        return String.format("NurminenDetectionAlgorithm %d edges=%s resolution=%d imageType=%d coarseToFine=%b",
+                VERSION, edgeSource, resolution, imageType, coarseToFine);
+    }
+
+    // number of threads that scan images for edges, 1 to do it on the calling thread
+    private int parallelism = 1;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public List<Rectangle> detect(Page page) {
+
+        // get horizontal & vertical lines
+        // by default we get these from an image of the PDF and not the PDF itself because sometimes there are
+        // invisible PDF instructions that are interpreted incorrectly as visible elements - we really want to capture
+        // what a person sees when they look at the PDF
+        // the page is rendered once, into an image of everything and one without text: vertical
+        // lines are looked for without text, to make things less confusing
+        // with vector edges, the rulings of the page are used instead, scaled to the same pixels
+        List<Ruling> horizontalRulings = new ArrayList<Ruling>();
+        List<Ruling> verticalRulings = new ArrayList<Ruling>();
         try {
-            this.removeText(pdfPage);
-            image = pdfPage.convertToImage(BufferedImage.TYPE_BYTE_GRAY, 144);
+            if (this.usesVectorEdges(page)) {
+                this.getVectorEdges(page, horizontalRulings, verticalRulings);
+            }
+            else {
+                this.findEdges(page.getPDPage(), horizontalRulings, verticalRulings);
+            }
         } catch (Exception e) {
             return new ArrayList<Rectangle>();
         }
 
-        List<Ruling> verticalRulings = this.getVerticalRulings(image);
+        // pixel distances below are for DEFAULT_RESOLUTION images
+        float pixelScale = this.resolution / (float) DEFAULT_RESOLUTION;
 
         List<Ruling> allEdges = new ArrayList<Ruling>(horizontalRulings);
         allEdges.addAll(verticalRulings);
@@ -115,7 +525,8 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         // if we found some edges, try to find some tables based on them
         if (allEdges.size() > 0) {
             // now we need to snap edge endpoints to a grid
-            Utils.snapPoints(allEdges, POINT_SNAP_DISTANCE_THRESHOLD, POINT_SNAP_DISTANCE_THRESHOLD);
+            float snapThreshold = POINT_SNAP_DISTANCE_THRESHOLD * pixelScale;
+            Utils.snapPoints(allEdges, snapThreshold, snapThreshold);
 
             // normalize the rulings to make sure snapping didn't create any wacky non-horizontal/vertical rulings
             for (List<Ruling> rulings : Arrays.asList(horizontalRulings, verticalRulings)) {
@@ -132,14 +543,16 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
             // merge the edge lines into rulings - this makes finding edges between crossing points in the next step easier
             // we use a larger pixel expansion than the normal spreadsheet extraction method to cover gaps in the
             // edge detection/pixel snapping steps
-            horizontalRulings = Ruling.collapseOrientedRulings(horizontalRulings, 5);
-            verticalRulings = Ruling.collapseOrientedRulings(verticalRulings, 5);
+            int expandAmount = Math.max(1, Math.round(5 * pixelScale));
+            horizontalRulings = Ruling.collapseOrientedRulings(horizontalRulings, expandAmount);
+            verticalRulings = Ruling.collapseOrientedRulings(verticalRulings, expandAmount);
 
             // use the rulings and points to find cells
-            List<? extends Rectangle> cells = SpreadsheetExtractionAlgorithm.findCells(horizontalRulings, verticalRulings);
+            RulingIntersections intersections = new RulingIntersections(horizontalRulings, verticalRulings);
+            List<? extends Rectangle> cells = SpreadsheetExtractionAlgorithm.findCells(intersections);
 
             // then use those cells to make table areas
-            tableAreas = this.getTableAreasFromCells(cells);
+            tableAreas = this.getTableAreasFromCells(cells, CELL_CORNER_DISTANCE_MAXIMUM * pixelScale);
         }
 
         // next find any vertical rulings that intersect tables - sometimes these won't have completely been captured as
@@ -157,23 +570,27 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
             }
         }
 
-        // the tabula Page coordinate space is half the size of the PDFBox image coordinate space
-        // so halve the table area size before proceeding and add a bit of padding to make sure we capture everything
+        // the tabula Page coordinate space is resolution / 72 times smaller than the PDFBox image coordinate space
+        // so scale the table area size down before proceeding and add a bit of padding to make sure we capture everything
+        float scale = this.resolution / 72f;
         for (Rectangle area : tableAreas) {
-            area.x = (float)Math.floor(area.x/2) - TABLE_PADDING_AMOUNT;
-            area.y = (float)Math.floor(area.y/2) - TABLE_PADDING_AMOUNT;
-            area.width = (float)Math.ceil(area.width/2) + TABLE_PADDING_AMOUNT;
-            area.height = (float)Math.ceil(area.height/2) + TABLE_PADDING_AMOUNT;
+            area.x = (float)Math.floor(area.x/scale) - TABLE_PADDING_AMOUNT;
+            area.y = (float)Math.floor(area.y/scale) - TABLE_PADDING_AMOUNT;
+            area.width = (float)Math.ceil(area.width/scale) + TABLE_PADDING_AMOUNT;
+            area.height = (float)Math.ceil(area.height/scale) + TABLE_PADDING_AMOUNT;
         }
 
-        // we're going to want halved horizontal lines later too
+        // we're going to want scaled horizontal lines later too
         for (Line2D.Float ruling : horizontalRulings) {
-            ruling.x1 = ruling.x1/2;
-            ruling.y1 = ruling.y1/2;
-            ruling.x2 = ruling.x2/2;
-            ruling.y2 = ruling.y2/2;
+            ruling.x1 = ruling.x1/scale;
+            ruling.y1 = ruling.y1/scale;
+            ruling.x2 = ruling.x2/scale;
+            ruling.y2 = ruling.y2/scale;
         }
 
+        // built before mergeWords, which takes the first glyph out of the page's text
+        TextDensityIndex textDensity = page.getTextDensityIndex();
+
         // now look at text rows to help us find more tables and flesh out existing ones
         List<TextChunk> textChunks = TextElement.mergeWords(page.getText());
         List<Line> lines = TextChunk.groupByLines(textChunks);
@@ -192,11 +609,14 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         for (Iterator<Rectangle> iterator = tableAreas.iterator(); iterator.hasNext();) {
             Rectangle table = iterator.next();
 
-            boolean intersectsText = false;
-            for (Line textRow : lines) {
-                if (table.intersects(textRow)) {
-                    intersectsText = true;
-                    break;
+            // most tables have text well inside them, and then rows don't need to be looked at
+            boolean intersectsText = textDensity.hasTextInside(table);
+            if (!intersectsText) {
+                for (Line textRow : lines) {
+                    if (table.intersects(textRow)) {
+                        intersectsText = true;
+                        break;
+                    }
                 }
             }
 
@@ -215,22 +635,31 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
 
         boolean foundTable;
 
+        // text edges are kept from one table to the next, and only rescanned below the first line removed
+        TextEdgeScan textEdgeScan = new TextEdgeScan(lines);
+        // the lines contained within tableAreas before this one have been removed already
+        int firstNewTable = 0;
+
         do {
             foundTable = false;
 
-            // get rid of any text lines contained within existing tables, this allows us to find more tables
-            for (Iterator<Line> iterator = lines.iterator(); iterator.hasNext();) {
+            // get rid of any text lines contained within new tables, this allows us to find more tables
+            int firstRemovedLine = lines.size();
+            int lineIndex = 0;
+            for (Iterator<Line> iterator = lines.iterator(); iterator.hasNext(); lineIndex++) {
                 Line textRow = iterator.next();
-                for (Rectangle table : tableAreas) {
+                for (Rectangle table : tableAreas.subList(firstNewTable, tableAreas.size())) {
                     if (table.contains(textRow)) {
                         iterator.remove();
+                        firstRemovedLine = Math.min(firstRemovedLine, lineIndex);
                         break;
                     }
                 }
             }
+            firstNewTable = tableAreas.size();
 
             // get text edges from remaining lines in the document
-            TextEdges textEdges = this.getTextEdges(lines);
+            TextEdges textEdges = textEdgeScan.getTextEdges(firstRemovedLine);
             List<TextEdge> leftTextEdges = textEdges.get(TextEdge.LEFT);
             List<TextEdge> midTextEdges = textEdges.get(TextEdge.MID);
             List<TextEdge> rightTextEdges = textEdges.get(TextEdge.RIGHT);
@@ -262,32 +691,8 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
             }
         } while (foundTable);
 
-        // create a set of our current tables that will eliminate duplicate tables
-        Set<Rectangle> tableSet = new TreeSet<Rectangle>(new Comparator<Rectangle>() {
-            @Override
-            public int compare(Rectangle o1, Rectangle o2) {
-                if (o1.equals(o2)) {
-                    return 0;
-                }
-
-                // o1 is "equal" to o2 if o2 contains all of o1
-                if (o2.contains(o1)) {
-                    return 0;
-                }
-
-                // otherwise see if these tables are "mostly" the same
-                float overlap = o1.overlapRatio(o2);
-                if (overlap >= IDENTICAL_TABLE_OVERLAP_RATIO) {
-                    return 0;
-                } else {
-                    return 1;
-                }
-            }
-        });
-
-        tableSet.addAll(tableAreas);
-
-        return new ArrayList<Rectangle>(tableSet);
+        // eliminate duplicate tables: tables contained in others, or "mostly" the same as others
+        return AreaDeduplicator.deduplicate(tableAreas, IDENTICAL_TABLE_OVERLAP_RATIO);
     }
 
     private Rectangle getTableFromText(List<Line> lines,
@@ -483,174 +888,54 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         return new RelevantEdges(relevantEdgeType, relevantEdgeCount);
     }
 
-    private TextEdges getTextEdges(List<Line> lines) {
-
-        // get all text edges (lines that align with the left, middle and right of chunks of text) that extend
-        // uninterrupted over at least REQUIRED_TEXT_LINES_FOR_EDGE lines of text
-        List<TextEdge> leftTextEdges = new ArrayList<TextEdge>();
-        List<TextEdge> midTextEdges = new ArrayList<TextEdge>();
-        List<TextEdge> rightTextEdges = new ArrayList<TextEdge>();
-
-        Map<Integer, List<TextChunk>> currLeftEdges = new HashMap<Integer, List<TextChunk>>();
-        Map<Integer, List<TextChunk>> currMidEdges = new HashMap<Integer, List<TextChunk>>();
-        Map<Integer, List<TextChunk>> currRightEdges = new HashMap<Integer, List<TextChunk>>();
-
-        for (Line textRow : lines) {
-            for (TextChunk text : textRow.getTextElements()) {
-                Integer left = new Integer((int)Math.floor(text.getLeft()));
-                Integer right = new Integer((int)Math.floor(text.getRight()));
-                Integer mid = new Integer(left + ((right - left)/2));
-
-                // first put this chunk into any edge buckets it belongs to
-                List<TextChunk> leftEdge = currLeftEdges.get(left);
-                if (leftEdge == null) {
-                    leftEdge = new ArrayList<TextChunk>();
-                    currLeftEdges.put(left, leftEdge);
-                }
-                leftEdge.add(text);
-
-                List<TextChunk> midEdge = currMidEdges.get(mid);
-                if (midEdge == null) {
-                    midEdge = new ArrayList<TextChunk>();
-                    currMidEdges.put(mid, midEdge);
-                }
-                midEdge.add(text);
-
-                List<TextChunk> rightEdge = currRightEdges.get(right);
-                if (rightEdge == null) {
-                    rightEdge = new ArrayList<TextChunk>();
-                    currRightEdges.put(right, rightEdge);
-                }
-                rightEdge.add(text);
-
-                // now see if this text chunk blows up any other edges
-                for (Iterator<Map.Entry<Integer, List<TextChunk>>> iterator = currLeftEdges.entrySet().iterator(); iterator.hasNext();) {
-                    Map.Entry<Integer, List<TextChunk>> entry = iterator.next();
-                    Integer key = entry.getKey();
-                    if (key > left && key < right) {
-                        iterator.remove();
-                        List<TextChunk> edgeChunks = entry.getValue();
-                        if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                            TextChunk first = edgeChunks.get(0);
-                            TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                            TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                            edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                            leftTextEdges.add(edge);
-                        }
-                    }
-                }
-
-                for (Iterator<Map.Entry<Integer, List<TextChunk>>> iterator = currMidEdges.entrySet().iterator(); iterator.hasNext();) {
-                    Map.Entry<Integer, List<TextChunk>> entry = iterator.next();
-                    Integer key = entry.getKey();
-                    if (key > left && key < right && Math.abs(key - mid) > 2) {
-                        iterator.remove();
-                        List<TextChunk> edgeChunks = entry.getValue();
-                        if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                            TextChunk first = edgeChunks.get(0);
-                            TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                            TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                            edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                            midTextEdges.add(edge);
-                        }
-                    }
-                }
-
-                for (Iterator<Map.Entry<Integer, List<TextChunk>>> iterator = currRightEdges.entrySet().iterator(); iterator.hasNext();) {
-                    Map.Entry<Integer, List<TextChunk>> entry = iterator.next();
-                    Integer key = entry.getKey();
-                    if (key > left && key < right) {
-                        iterator.remove();
-                        List<TextChunk> edgeChunks = entry.getValue();
-                        if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                            TextChunk first = edgeChunks.get(0);
-                            TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                            TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                            edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                            rightTextEdges.add(edge);
-                        }
-                    }
-                }
+    private List<Rectangle> getTableAreasFromCells(List<? extends Rectangle> cells, float cornerDistanceMaximum) {
+        // group cells that have corners closer than cornerDistanceMaximum, transitively. Corners go in a spatial
+        // hash of cornerDistanceMaximum sized buckets, so a corner only needs to be compared with the ones in
+        // its bucket and the 8 around it
+        int n = cells.size();
+        UnionFind groups = new UnionFind(n);
+        float[] cornerXs = new float[4 * n];
+        float[] cornerYs = new float[4 * n];
+        for (int i = 0; i < n; i++) {
+            Point2D[] corners = cells.get(i).getPoints();
+            for (int k = 0; k < 4; k++) {
+                cornerXs[4 * i + k] = (float) corners[k].getX();
+                cornerYs[4 * i + k] = (float) corners[k].getY();
             }
         }
 
-        // add the leftovers
-        for (Integer key : currLeftEdges.keySet()) {
-            List<TextChunk> edgeChunks = currLeftEdges.get(key);
-            if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                TextChunk first = edgeChunks.get(0);
-                TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                leftTextEdges.add(edge);
-            }
-        }
-
-        for (Integer key : currMidEdges.keySet()) {
-            List<TextChunk> edgeChunks = currMidEdges.get(key);
-            if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                TextChunk first = edgeChunks.get(0);
-                TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                midTextEdges.add(edge);
-            }
-        }
-
-        for (Integer key : currRightEdges.keySet()) {
-            List<TextChunk> edgeChunks = currRightEdges.get(key);
-            if (edgeChunks.size() >= REQUIRED_TEXT_LINES_FOR_EDGE) {
-                TextChunk first = edgeChunks.get(0);
-                TextChunk last = edgeChunks.get(edgeChunks.size() - 1);
-
-                TextEdge edge = new TextEdge(key, first.getTop(), key, last.getBottom());
-                edge.intersectingTextRowCount = Math.min(edgeChunks.size(), lines.size());
-
-                rightTextEdges.add(edge);
-            }
-        }
-
-        return new TextEdges(leftTextEdges, midTextEdges, rightTextEdges);
-    }
-
-    private List<Rectangle> getTableAreasFromCells(List<? extends Rectangle> cells) {
-        List<List<Rectangle>> cellGroups = new ArrayList<List<Rectangle>>();
-        for (Rectangle cell : cells) {
-            boolean addedToGroup = false;
-
-            cellCheck:
-            for (List<Rectangle> cellGroup : cellGroups) {
-                for (Rectangle groupCell : cellGroup) {
-                    Point2D[] groupCellCorners = groupCell.getPoints();
-                    Point2D[] candidateCorners = cell.getPoints();
-
-                    for (int i=0; i<candidateCorners.length; i++) {
-                        for (int j=0; j<groupCellCorners.length; j++) {
-                            if (candidateCorners[i].distance(groupCellCorners[j]) < CELL_CORNER_DISTANCE_MAXIMUM) {
-                                cellGroup.add(cell);
-                                addedToGroup = true;
-                                break cellCheck;
+        if (cornerDistanceMaximum > 0) {
+            // bucket -> last corner put in it; earlier ones are chained through nextInBucket
+            LongIntHashMap buckets = new LongIntHashMap(4 * n);
+            int[] nextInBucket = new int[4 * n];
+            for (int c = 0; c < 4 * n; c++) {
+                int bucketX = (int) Math.floor(cornerXs[c] / cornerDistanceMaximum);
+                int bucketY = (int) Math.floor(cornerYs[c] / cornerDistanceMaximum);
+                for (int x = bucketX - 1; x <= bucketX + 1; x++) {
+                    for (int y = bucketY - 1; y <= bucketY + 1; y++) {
+                        for (int other = buckets.get(LongIntHashMap.pack(x, y), -1); other != -1; other = nextInBucket[other]) {
+                            if (other / 4 != c / 4
+                                    && Point2D.distance(cornerXs[c], cornerYs[c], cornerXs[other], cornerYs[other]) < cornerDistanceMaximum) {
+                                groups.union(c / 4, other / 4);
                             }
                         }
                     }
                 }
+                nextInBucket[c] = buckets.put(LongIntHashMap.pack(bucketX, bucketY), c, -1);
             }
+        }
 
-            if (!addedToGroup) {
-                ArrayList<Rectangle> cellGroup = new ArrayList<Rectangle>();
-                cellGroup.add(cell);
-                cellGroups.add(cellGroup);
+        // groups are in the order of their first cell
+        List<List<Rectangle>> cellGroups = new ArrayList<List<Rectangle>>();
+        int[] groupOf = new int[n];
+        Arrays.fill(groupOf, -1);
+        for (int i = 0; i < n; i++) {
+            int root = groups.find(i);
+            if (groupOf[root] == -1) {
+                groupOf[root] = cellGroups.size();
+                cellGroups.add(new ArrayList<Rectangle>());
             }
+            cellGroups.get(groupOf[root]).add(cells.get(i));
         }
 
         // create table areas based on cell group
@@ -679,163 +964,355 @@ public class NurminenDetectionAlgorithm implements DetectionAlgorithm {
         return tableAreas;
     }
 
-    private List<Ruling> getHorizontalRulings(BufferedImage image) {
+    private boolean usesVectorEdges(Page page) {
+        switch (this.edgeSource) {
+            case VECTOR:
+                return true;
+            case AUTOMATIC:
+                // the extracted rulings are all there is to see, unless there are images of some size
+                double imageArea = 0;
+                for (Rectangle image : page.getImageAreas()) {
+                    Rectangle2D visible = image.createIntersection(page);
+                    if (!visible.isEmpty()) {
+                        imageArea += visible.getWidth() * visible.getHeight();
+                    }
+                }
+                return imageArea <= LARGE_IMAGE_AREA_RATIO * page.getArea();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Adds the rulings of page that are as long as edges looked for in images, scaled to the
+     * pixels of the page rendered at this.resolution, so they go through the same steps as edges
+     * found in images
+     */
+    private void getVectorEdges(Page page, List<Ruling> horizontalEdges, List<Ruling> verticalEdges) {
+        float scale = this.resolution / 72f;
+        float pixelScale = this.resolution / (float) DEFAULT_RESOLUTION;
+        float minimumWidth = HORIZONTAL_EDGE_WIDTH_MINIMUM * pixelScale;
+        float minimumHeight = VERTICAL_EDGE_HEIGHT_MINIMUM * pixelScale;
+
+        for (Ruling ruling : page.getHorizontalRulings()) {
+            Ruling edge = scaledRuling(ruling, scale);
+            if (edge.length() >= minimumWidth) {
+                horizontalEdges.add(edge);
+            }
+        }
+        for (Ruling ruling : page.getVerticalRulings()) {
+            Ruling edge = scaledRuling(ruling, scale);
+            if (edge.length() >= minimumHeight) {
+                verticalEdges.add(edge);
+            }
+        }
+    }
+
+    // a copy of ruling, so that the rulings of the page aren't changed by snapping
+    private static Ruling scaledRuling(Ruling ruling, float scale) {
+        return new Ruling(new Point2D.Float(ruling.x1 * scale, ruling.y1 * scale),
+                          new Point2D.Float(ruling.x2 * scale, ruling.y2 * scale));
+    }
+
+    /**
+     * Finds the horizontal edges of pdPage with its text, and its vertical edges without it,
+     * in the pixels of the page rendered at this.resolution
+     */
+    private void findEdges(PDPage pdPage, List<Ruling> horizontalEdges, List<Ruling> verticalEdges) throws IOException {
+        ExecutorService executor = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism) : null;
+        try {
+            this.findEdges(pdPage, horizontalEdges, verticalEdges, executor);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private void findEdges(PDPage pdPage, List<Ruling> horizontalEdges, List<Ruling> verticalEdges,
+                           ExecutorService executor) throws IOException {
+        int bands = this.parallelism;
+        float pixelScale = this.resolution / (float) DEFAULT_RESOLUTION;
+        int minimumWidth = Math.round(HORIZONTAL_EDGE_WIDTH_MINIMUM * pixelScale);
+        int minimumHeight = Math.round(VERTICAL_EDGE_HEIGHT_MINIMUM * pixelScale);
+
+        if (!this.coarseToFine) {
+            LayeredPageDrawer.Layers layers = LayeredPageDrawer.render(pdPage, this.imageType, this.resolution);
+            horizontalEdges.addAll(getHorizontalRulings(layers.withText, GRAYSCALE_INTENSITY_THRESHOLD, minimumWidth, executor, bands));
+            verticalEdges.addAll(getVerticalRulings(layers.withoutText, GRAYSCALE_INTENSITY_THRESHOLD, minimumHeight, executor, bands));
+            return;
+        }
+
+        // look for candidate edges at a lower resolution first. That image is always grayscale:
+        // in 1 bit, hairlines thinner than a pixel would disappear rather than get lighter
+        int coarseResolution = Math.max(1, this.resolution / COARSE_RESOLUTION_DIVISOR);
+        float coarseScale = coarseResolution / (float) DEFAULT_RESOLUTION;
+        int coarseThreshold = Math.round(GRAYSCALE_INTENSITY_THRESHOLD * CANDIDATE_LENIENCY);
+        LayeredPageDrawer.Layers coarse = LayeredPageDrawer.render(pdPage, BufferedImage.TYPE_BYTE_GRAY, coarseResolution);
+        List<Ruling> candidates = getHorizontalRulings(coarse.withText, coarseThreshold,
+                Math.round(HORIZONTAL_EDGE_WIDTH_MINIMUM * coarseScale * CANDIDATE_LENIENCY), executor, bands);
+        candidates.addAll(getVerticalRulings(coarse.withoutText, coarseThreshold,
+                Math.round(VERTICAL_EDGE_HEIGHT_MINIMUM * coarseScale * CANDIDATE_LENIENCY), executor, bands));
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // then render the regions around them at full resolution
+        float toFine = this.resolution / (float) coarseResolution;
+        int padding = Math.round(CANDIDATE_REGION_PADDING * this.resolution / 72f);
+        java.awt.Rectangle pageBounds = new java.awt.Rectangle(0, 0,
+                (int) Math.ceil(coarse.withText.getWidth() * toFine), (int) Math.ceil(coarse.withText.getHeight() * toFine));
+        List<java.awt.Rectangle> regions = new ArrayList<java.awt.Rectangle>();
+        for (Ruling candidate : candidates) {
+            java.awt.Rectangle region = new java.awt.Rectangle(
+                    (int) Math.floor(Math.min(candidate.x1, candidate.x2) * toFine) - padding,
+                    (int) Math.floor(Math.min(candidate.y1, candidate.y2) * toFine) - padding, 0, 0);
+            region.add((int) Math.ceil((Math.max(candidate.x1, candidate.x2) + 1) * toFine) + padding,
+                       (int) Math.ceil((Math.max(candidate.y1, candidate.y2) + 1) * toFine) + padding);
+            regions.add(region.intersection(pageBounds));
+        }
+        regions = mergeOverlapping(regions);
+
+        long regionsArea = 0;
+        for (java.awt.Rectangle region : regions) {
+            regionsArea += (long) region.width * region.height;
+        }
+        if (regions.size() > MAXIMUM_CANDIDATE_REGIONS || regionsArea * 2 > (long) pageBounds.width * pageBounds.height) {
+            // rendering the page again for each region would cost more than rendering all of it once
+            java.awt.Rectangle bounds = new java.awt.Rectangle(regions.get(0));
+            for (java.awt.Rectangle region : regions) {
+                bounds.add(region);
+            }
+            regions = Collections.singletonList(bounds);
+        }
+
+        for (java.awt.Rectangle region : regions) {
+            if (region.isEmpty()) {
+                continue;
+            }
+            LayeredPageDrawer.Layers layers = LayeredPageDrawer.render(pdPage, this.imageType, this.resolution, region);
+            for (Ruling edge : getHorizontalRulings(layers.withText, GRAYSCALE_INTENSITY_THRESHOLD, minimumWidth, executor, bands)) {
+                edge.setLine(edge.x1 + region.x, edge.y1 + region.y, edge.x2 + region.x, edge.y2 + region.y);
+                horizontalEdges.add(edge);
+            }
+            for (Ruling edge : getVerticalRulings(layers.withoutText, GRAYSCALE_INTENSITY_THRESHOLD, minimumHeight, executor, bands)) {
+                edge.setLine(edge.x1 + region.x, edge.y1 + region.y, edge.x2 + region.x, edge.y2 + region.y);
+                verticalEdges.add(edge);
+            }
+        }
+    }
+
+    // merges regions that overlap until none do
+    private static List<java.awt.Rectangle> mergeOverlapping(List<java.awt.Rectangle> regions) {
+        List<java.awt.Rectangle> merged = new ArrayList<java.awt.Rectangle>(regions);
+        boolean mergedAny;
+        do {
+            mergedAny = false;
+            for (int i = 0; i < merged.size(); i++) {
+                java.awt.Rectangle region = merged.get(i);
+                for (int j = merged.size() - 1; j > i; j--) {
+                    if (region.intersects(merged.get(j))) {
+                        region.add(merged.remove(j));
+                        mergedAny = true;
+                    }
+                }
+            }
+        } while (mergedAny);
+        return merged;
+    }
+
+    private static List<Ruling> getHorizontalRulings(BufferedImage image, final int intensityThreshold, final int minimumWidth,
+                                                     ExecutorService executor, int bands) {
 
         // get all horizontal edges, which we'll define as a change in grayscale colour
         // along a straight line of a certain length
         ArrayList<Ruling> horizontalRulings = new ArrayList<Ruling>();
 
-        Raster r = image.getRaster();
-        int width = r.getWidth();
-        int height = r.getHeight();
+        // an edge is on a single row, so bands of rows can be scanned independently
+        final GrayPixels pixels = new GrayPixels(image);
+        PackedEdges found = scanInBands(executor, bands, 1, pixels.height - 1, new EdgeScanner() {
+            @Override
+            public PackedEdges scan(int from, int to) {
+                return scanHorizontalEdges(pixels, intensityThreshold, minimumWidth, from, to);
+            }
+        });
 
-        for (int x=0; x<width; x++) {
+        // in the order they'd be found column by column, left to right
+        found.sort();
+        for (int i = 0; i < found.size; i++) {
+            long edge = found.edges[i];
+            int x = (int) (edge >>> 42), y = (int) (edge >>> 21) & EDGE_COORDINATE_MASK, endX = (int) edge & EDGE_COORDINATE_MASK;
+            horizontalRulings.add(new Ruling(new Point2D.Float(x, y), new Point2D.Float(endX, y)));
+        }
 
-            int[] lastPixel = r.getPixel(x, 0, (int[])null);
+        return horizontalRulings;
+    }
 
-            for (int y=1; y<height-1; y++) {
+    // horizontal edges starting on rows fromY..toY, packed by x, y and end x
+    private static PackedEdges scanHorizontalEdges(GrayPixels pixels, int intensityThreshold, int minimumWidth, int fromY, int toY) {
+        byte[] data = pixels.data;
+        int stride = pixels.stride;
+        int width = pixels.width;
 
-                int[] currPixel = r.getPixel(x, y, (int[])null);
+        PixelDifferences differences = new PixelDifferences(data, intensityThreshold);
 
-                int diff = Math.abs(currPixel[0] - lastPixel[0]);
-                if (diff > GRAYSCALE_INTENSITY_THRESHOLD) {
-                    // we hit what could be a line
-                    // don't bother scanning it if we've hit a pixel in the line before
-                    boolean alreadyChecked = false;
-                    for (Line2D.Float line : horizontalRulings) {
-                        if (y == line.getY1() && x >= line.getX1() && x <= line.getX2()) {
-                            alreadyChecked = true;
-                            break;
-                        }
-                    }
+        // rows are scanned left to right, so rulings on a row are found in order and don't overlap:
+        // the next pixel to check is the first one past the last ruling found that differs from the one above it
+        PackedEdges found = new PackedEdges();
+        for (int y=fromY; y<toY; y++) {
+            int row = pixels.offset + y * stride;
+            int above = row - stride;
 
-                    if (alreadyChecked) {
-                        lastPixel = currPixel;
-                        continue;
-                    }
+            int x = differences.next(row, above, 0, width);
+            while (x < width) {
 
-                    int lineX = x + 1;
+                int currPixel = data[row + x] & 0xff;
 
-                    while (lineX < width) {
-                        int[] linePixel = r.getPixel(lineX, y, (int[]) null);
-                        int[] abovePixel = r.getPixel(lineX, y - 1, (int[]) null);
+                // we hit what could be a line
+                int lineX = x + 1;
 
-                        if (Math.abs(linePixel[0] - abovePixel[0]) <= GRAYSCALE_INTENSITY_THRESHOLD
-                                || Math.abs(currPixel[0] - linePixel[0]) > GRAYSCALE_INTENSITY_THRESHOLD) {
-                            break;
-                        }
+                while (lineX < width) {
+                    int linePixel = data[row + lineX] & 0xff;
+                    int abovePixel = data[above + lineX] & 0xff;
 
-                        lineX++;
+                    if (Math.abs(linePixel - abovePixel) <= intensityThreshold
+                            || Math.abs(currPixel - linePixel) > intensityThreshold) {
+                        break;
                     }
 
-                    int endX = lineX - 1;
-                    int lineWidth = endX - x;
-                    if (lineWidth > HORIZONTAL_EDGE_WIDTH_MINIMUM) {
-                        horizontalRulings.add(new Ruling(new Point2D.Float(x, y), new Point2D.Float(endX, y)));
-                    }
+                    lineX++;
                 }
 
-                lastPixel = currPixel;
+                int endX = lineX - 1;
+                int lineWidth = endX - x;
+                int next = x + 1;
+                if (lineWidth > minimumWidth) {
+                    found.add(packEdge(x, y, endX));
+                    next = endX + 1;
+                }
+                x = differences.next(row, above, next, width);
             }
         }
-
-        return horizontalRulings;
+        return found;
     }
 
-    private List<Ruling> getVerticalRulings(BufferedImage image) {
+    private static List<Ruling> getVerticalRulings(BufferedImage image, final int intensityThreshold, final int minimumHeight,
+                                                   ExecutorService executor, int bands) {
 
         // get all vertical edges, which we'll define as a change in grayscale colour
         // along a straight line of a certain length
         ArrayList<Ruling> verticalRulings = new ArrayList<Ruling>();
 
-        Raster r = image.getRaster();
-        int width = r.getWidth();
-        int height = r.getHeight();
+        // an edge is on a single column, so bands of columns can be scanned independently
+        final GrayPixels pixels = new GrayPixels(image);
+        PackedEdges found = scanInBands(executor, bands, 1, pixels.width - 1, new EdgeScanner() {
+            @Override
+            public PackedEdges scan(int from, int to) {
+                return scanVerticalEdges(pixels, intensityThreshold, minimumHeight, from, to);
+            }
+        });
 
-        for (int y=0; y<height; y++) {
+        // in the order they'd be found row by row, top to bottom
+        found.sort();
+        for (int i = 0; i < found.size; i++) {
+            long edge = found.edges[i];
+            int y = (int) (edge >>> 42), x = (int) (edge >>> 21) & EDGE_COORDINATE_MASK, endY = (int) edge & EDGE_COORDINATE_MASK;
+            verticalRulings.add(new Ruling(new Point2D.Float(x, y), new Point2D.Float(x, endY)));
+        }
 
-            int[] lastPixel = r.getPixel(0, y, (int[])null);
+        return verticalRulings;
+    }
 
-            for (int x=1; x<width-1; x++) {
+    // vertical edges on columns fromX..toX, packed by y, x and end y
+    private static PackedEdges scanVerticalEdges(GrayPixels pixels, int intensityThreshold, int minimumHeight, int fromX, int toX) {
+        byte[] data = pixels.data;
+        int stride = pixels.stride;
+        int height = pixels.height;
 
-                int[] currPixel = r.getPixel(x, y, (int[])null);
+        // rows are scanned top to bottom, so rulings on a column are found in order and don't overlap:
+        // a pixel was already checked if it's not below the last one found on its column
+        int[] checkedUntil = new int[toX - fromX];
+        Arrays.fill(checkedUntil, -1);
 
-                int diff = Math.abs(currPixel[0] - lastPixel[0]);
-                if (diff > GRAYSCALE_INTENSITY_THRESHOLD) {
-                    // we hit what could be a line
-                    // don't bother scanning it if we've hit a pixel in the line before
-                    boolean alreadyChecked = false;
-                    for (Line2D.Float line : verticalRulings) {
-                        if (x == line.getX1() && y >= line.getY1() && y <= line.getY2()) {
-                            alreadyChecked = true;
-                            break;
-                        }
-                    }
+        PixelDifferences differences = new PixelDifferences(data, intensityThreshold);
 
-                    if (alreadyChecked) {
-                        lastPixel = currPixel;
-                        continue;
-                    }
+        PackedEdges found = new PackedEdges();
+        for (int y=0; y<height; y++) {
+            int row = pixels.offset + y * stride;
+
+            // only pixels that differ from the one to their left can start a ruling
+            for (int x=differences.next(row, row - 1, fromX, toX); x<toX; x=differences.next(row, row - 1, x + 1, toX)) {
+
+                int currPixel = data[row + x] & 0xff;
 
+                if (y > checkedUntil[x - fromX]) {
+                    // we hit what could be a line
                     int lineY = y + 1;
+                    int line = row + stride + x;
 
                     while (lineY < height) {
-                        int[] linePixel = r.getPixel(x, lineY, (int[]) null);
-                        int[] leftPixel = r.getPixel(x - 1, lineY, (int[]) null);
+                        int linePixel = data[line] & 0xff;
+                        int leftPixel = data[line - 1] & 0xff;
 
-                        if (Math.abs(linePixel[0] - leftPixel[0]) <= GRAYSCALE_INTENSITY_THRESHOLD
-                                || Math.abs(currPixel[0] - linePixel[0]) > GRAYSCALE_INTENSITY_THRESHOLD) {
+                        if (Math.abs(linePixel - leftPixel) <= intensityThreshold
+                                || Math.abs(currPixel - linePixel) > intensityThreshold) {
                             break;
                         }
 
                         lineY++;
+                        line += stride;
                     }
 
                     int endY = lineY - 1;
                     int lineLength = endY - y;
-                    if (lineLength > VERTICAL_EDGE_HEIGHT_MINIMUM) {
-                        verticalRulings.add(new Ruling(new Point2D.Float(x, y), new Point2D.Float(x, endY)));
+                    if (lineLength > minimumHeight) {
+                        found.add(packEdge(y, x, endY));
+                        checkedUntil[x - fromX] = endY;
                     }
                 }
-
-                lastPixel = currPixel;
             }
         }
-
-        return verticalRulings;
+        return found;
     }
 
-    // taken from http://www.docjar.com/html/api/org/apache/pdfbox/examples/util/RemoveAllText.java.html
-    private void removeText(PDPage page) throws IOException {
-        PDFStreamParser parser = new PDFStreamParser(page.getContents());
-        parser.parse();
-
-        List tokens = parser.getTokens();
-        List newTokens = new ArrayList();
+    /**
+     * Scans from..to in up to bands bands, on executor's threads if it's not null, and returns
+     * all the edges found
+     */
+    private static PackedEdges scanInBands(ExecutorService executor, int bands, int from, int to, final EdgeScanner scanner) {
+        bands = Math.min(bands, (to - from) / MINIMUM_BAND_SIZE);
+        if (executor == null || bands <= 1) {
+            return scanner.scan(from, Math.max(from, to));
+        }
 
-        for (int i=0; i<tokens.size(); i++) {
-            Object token = tokens.get(i);
-            if (token instanceof PDFOperator) {
-                PDFOperator op = (PDFOperator)token;
-                if (op.getOperation().equals("TJ") || op.getOperation().equals("Tj")) {
-                    newTokens.remove(newTokens.size() - 1);
-                    continue;
+        List<Future<PackedEdges>> futures = new ArrayList<Future<PackedEdges>>();
+        int band = (to - from + bands - 1) / bands;
+        for (int start = from; start < to; start += band) {
+            final int bandFrom = start, bandTo = Math.min(to, start + band);
+            futures.add(executor.submit(new Callable<PackedEdges>() {
+                @Override
+                public PackedEdges call() {
+                    return scanner.scan(bandFrom, bandTo);
                 }
-            }
-            newTokens.add(token);
+            }));
         }
 
-        PDDocument document = new PDDocument();
-        document.addPage(page);
-
-        PDStream newContents = new PDStream(document);
-        ContentStreamWriter writer = new ContentStreamWriter(newContents.createOutputStream());
-        writer.writeTokens(newTokens);
-        newContents.addCompression();
-        page.setContents(newContents);
-
+        PackedEdges rv = new PackedEdges();
         try {
-            document.close();
-        } catch (Exception e) {}
+            for (Future<PackedEdges> f : futures) {
+                rv.addAll(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return rv;
+    }
+
+    // an edge starting at (a, b) and ending at end, as a long that sorts by a, then b
+    private static long packEdge(int a, int b, int end) {
+        return ((long) a << 42) | ((long) b << 21) | end;
     }
 }
@@ -0,0 +1,88 @@
+package technology.tabula.detectors;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Looks for 8 bit pixels whose intensity differs from that of another pixel (the one above it,
+ * or to its left) by more than a threshold.
+ *
+ * Pixels are compared 8 at a time, as the bytes of a long, with word operations: the bytes are
+ * spread into 16 bit lanes, where 256 + a - b can be compared against both ends of the threshold
+ * without carries crossing lanes. Runs of pixels without differences, most of a rendered page,
+ * are skipped a word at a time. Ends of runs shorter than a word, and thresholds outside
+ * 0..255, are compared one pixel at a time.
+ */
+public final class PixelDifferences {
+
+    private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long LANE_256 = 0x0100010001000100L;
+    private static final long LANE_SIGNS = 0x8000800080008000L;
+    private static final long LANE_ONES = 0x0001000100010001L;
+
+    private final byte[] data;
+    private final ByteBuffer words;
+    private final int threshold;
+    private final boolean wordwise;
+    // per 16 bit lane: added to 256 + a - b, the sign bit is set when a - b > threshold
+    private final long aboveLanes;
+    // per 16 bit lane: 256 + a - b subtracted from it, the sign bit is set when b - a > threshold
+    private final long belowLanes;
+
+    public PixelDifferences(byte[] data, int threshold) {
+        this(data, threshold, true);
+    }
+
+    /**
+     * @param wordwise false to compare every pixel on its own, for comparison
+     */
+    public PixelDifferences(byte[] data, int threshold, boolean wordwise) {
+        this.data = data;
+        this.threshold = threshold;
+        this.wordwise = wordwise && threshold >= 0 && threshold <= 255;
+        this.words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        this.aboveLanes = (0x7FFF - 256 - threshold) * LANE_ONES;
+        this.belowLanes = (0x7FFF + 256 - threshold) * LANE_ONES;
+    }
+
+    /**
+     * @return the first i in from..to for which data[a + i] and data[b + i] differ by more than
+     *         the threshold, or to if there's none
+     */
+    public int next(int a, int b, int from, int to) {
+        int i = from;
+        if (this.wordwise) {
+            for (; i + 8 <= to; i += 8) {
+                long wa = this.words.getLong(a + i), wb = this.words.getLong(b + i);
+                if (wa != wb) {
+                    long mask = this.mask(wa, wb);
+                    if (mask != 0) {
+                        return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+                    }
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (Math.abs((this.data[a + i] & 0xff) - (this.data[b + i] & 0xff)) > this.threshold) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return a long with the high bit of each byte set where the bytes of a and b differ by
+     *         more than the threshold
+     */
+    long mask(long a, long b) {
+        // 256 + a - b of even bytes, then of odd bytes, in 16 bit lanes: 1..511, so no borrows
+        long even = ((a & EVEN_BYTES) | LANE_256) - (b & EVEN_BYTES);
+        long odd = (((a >>> 8) & EVEN_BYTES) | LANE_256) - ((b >>> 8) & EVEN_BYTES);
+
+        long evenDiffers = ((even + this.aboveLanes) | (this.belowLanes - even)) & LANE_SIGNS;
+        long oddDiffers = ((odd + this.aboveLanes) | (this.belowLanes - odd)) & LANE_SIGNS;
+
+        // an even byte's flag is the high bit of the byte above it, an odd byte's is its own
+        return (evenDiffers >>> 8) | oddDiffers;
+    }
+}
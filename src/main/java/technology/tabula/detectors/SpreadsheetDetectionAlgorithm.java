@@ -1,10 +1,12 @@
 package technology.tabula.detectors;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.AreaDeduplicator;
 import technology.tabula.Cell;
 import technology.tabula.Page;
 import technology.tabula.Rectangle;
 import technology.tabula.Ruling;
+import technology.tabula.RulingIntersections;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 
 import java.io.File;
@@ -19,14 +21,21 @@ import java.util.List;
  * It uses intersecting ruling lines to find tables.
  */
 public class SpreadsheetDetectionAlgorithm implements DetectionAlgorithm {
+
+    private static final float IDENTICAL_TABLE_OVERLAP_RATIO = 0.9f;
+
     @Override
     public List<Rectangle> detect(Page page) {
-        List<Cell> cells = SpreadsheetExtractionAlgorithm.findCells(page.getHorizontalRulings(), page.getVerticalRulings());
+        RulingIntersections intersections = new RulingIntersections(page.getHorizontalRulings(), page.getVerticalRulings());
+        List<Cell> cells = SpreadsheetExtractionAlgorithm.findCells(intersections);
 
         SpreadsheetExtractionAlgorithm sea = new SpreadsheetExtractionAlgorithm();
 
         List<Rectangle> tables = sea.findSpreadsheetsFromCells(cells);
 
+        // tables inside (or on top of) other tables aren't tables of their own
+        tables = AreaDeduplicator.deduplicate(tables, IDENTICAL_TABLE_OVERLAP_RATIO);
+
         // we want tables to be returned from top to bottom on the page
         Collections.sort(tables);
 
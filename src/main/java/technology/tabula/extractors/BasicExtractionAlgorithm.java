@@ -8,6 +8,7 @@ import java.util.Arrays;
 
 import technology.tabula.Line;
 import technology.tabula.Page;
+import technology.tabula.ProjectionProfile;
 import technology.tabula.Rectangle;
 import technology.tabula.Ruling;
 import technology.tabula.Table;
@@ -27,6 +28,9 @@ public class BasicExtractionAlgorithm implements ExtractionAlgorithm {
 
     private LineFilter lineFilter = null;
 
+    // pages with at least this many lines find their columns in a projection profile
+    private int projectionProfileMinimumLines = Integer.MAX_VALUE;
+
     public BasicExtractionAlgorithm() {
     }
 
@@ -47,6 +51,16 @@ public class BasicExtractionAlgorithm implements ExtractionAlgorithm {
       this.columnHintPositions = columnHintPositions;
     }
 
+    /**
+     * @param lines pages with at least this many lines of text find their columns with
+     *              projectionProfileColumnPositions, in time linear in the size of the page,
+     *              instead of columnPositions, which compares each line with every column found
+     *              in the lines above it. Off by default
+     */
+    public void setProjectionProfileMinimumLines(int lines) {
+      this.projectionProfileMinimumLines = lines;
+    }
+
     @Override
     public List<Table> extract(Page page) {
 
@@ -56,28 +70,8 @@ public class BasicExtractionAlgorithm implements ExtractionAlgorithm {
             return Arrays.asList(new Table[] { Table.EMPTY });
         }
 
-        List<Line> lines = TextChunk.groupByLines(extractTextChunks(page));
-        if (lineFilter != null) {
-          lines = lineFilter.filterLines(lines);
-        }
-
-        List<Float> columns = null;
-
-        if (this.verticalRulings != null) {
-            Collections.sort(this.verticalRulings, new Comparator<Ruling>() {
-                @Override
-                public int compare(Ruling arg0, Ruling arg1) {
-                    return Double.compare(arg0.getLeft(), arg1.getLeft());
-                }
-            });
-            columns = new ArrayList<Float>(this.verticalRulings.size());
-            for (Ruling vr: this.verticalRulings) {
-                columns.add(vr.getLeft());
-            }
-        }
-        else {
-            columns = columnPositions(lines);
-        }
+        List<Line> lines = textLines(page);
+        List<Float> columns = findColumns(page, lines);
 
         Table table = new Table(page, this);
 
@@ -98,21 +92,75 @@ public class BasicExtractionAlgorithm implements ExtractionAlgorithm {
                     continue;
                 }
 
-                int j = 0;
-                boolean found = false;
-                for(; j < columns.size(); j++) {
-                    if (tc.getLeft() <= columns.get(j)) {
-                        found = true;
-                        break;
-                    }
-                }
-                table.add(tc, i, found ? j : columns.size());
+                table.add(tc, i, columnOf(tc, columns));
             }
         }
 
         return Arrays.asList(new Table[] { table } );
     }
 
+    // number of rows and columns of the table extract(page) returns, without building it
+    int[] countRowsAndColumns(Page page) {
+        if (page.getText().size() == 0) {
+            return new int[] { 1, 1 };
+        }
+
+        List<Line> lines = textLines(page);
+        List<Float> columns = findColumns(page, lines);
+
+        int maxRow = 0, maxCol = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            for (TextChunk tc: lines.get(i).getTextElements()) {
+                if (tc.isSameChar(Line.WHITE_SPACE_CHARS)) {
+                    continue;
+                }
+                maxRow = i;
+                maxCol = Math.max(maxCol, columnOf(tc, columns));
+            }
+        }
+        return new int[] { maxRow + 1, maxCol + 1 };
+    }
+
+    private List<Line> textLines(Page page) {
+        List<Line> lines = TextChunk.groupByLines(extractTextChunks(page));
+        if (lineFilter != null) {
+          lines = lineFilter.filterLines(lines);
+        }
+        return lines;
+    }
+
+    private List<Float> findColumns(Page page, List<Line> lines) {
+        if (this.verticalRulings != null) {
+            Collections.sort(this.verticalRulings, new Comparator<Ruling>() {
+                @Override
+                public int compare(Ruling arg0, Ruling arg1) {
+                    return Double.compare(arg0.getLeft(), arg1.getLeft());
+                }
+            });
+            List<Float> columns = new ArrayList<Float>(this.verticalRulings.size());
+            for (Ruling vr: this.verticalRulings) {
+                columns.add(vr.getLeft());
+            }
+            return columns;
+        }
+        else if (lines.size() >= this.projectionProfileMinimumLines) {
+            return projectionProfileColumnPositions(page, lines);
+        }
+        else {
+            return columnPositions(lines);
+        }
+    }
+
+    // the first column that ends right of the left of tc, or the one after the last
+    private static int columnOf(TextChunk tc, List<Float> columns) {
+        for (int j = 0; j < columns.size(); j++) {
+            if (tc.getLeft() <= columns.get(j)) {
+                return j;
+            }
+        }
+        return columns.size();
+    }
+
     @Override
     public String toString() {
         return "basic";
@@ -187,4 +235,31 @@ public class BasicExtractionAlgorithm implements ExtractionAlgorithm {
 
         return rv;
     }
+
+    /**
+     * @return column boundaries (x axis) in the valleys of the horizontal projection profile
+     *         of the text chunks of lines, smoothed over one and a half average glyph widths.
+     *         Columns are at least two and a half average glyph widths wide
+     */
+    public static List<java.lang.Float> projectionProfileColumnPositions(Page page, List<Line> lines) {
+        List<TextChunk> chunks = new ArrayList<TextChunk>();
+        for (Line line: lines) {
+            for (TextChunk tc: line.getTextElements()) {
+                if (!tc.isSameChar(Line.WHITE_SPACE_CHARS)) {
+                    chunks.add(tc);
+                }
+            }
+        }
+
+        float averageWidth = 0, averageHeight = 0;
+        for (TextElement te: page.getText()) {
+            averageWidth += te.getWidth();
+            averageHeight += te.getHeight();
+        }
+        averageWidth /= page.getText().size();
+        averageHeight /= page.getText().size();
+
+        ProjectionProfile profile = new ProjectionProfile(page, chunks, averageWidth * 1.5f, averageHeight);
+        return profile.findColumnPositions(averageWidth * 2.5f);
+    }
 }
@@ -0,0 +1,229 @@
+package technology.tabula.extractors;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import technology.tabula.LongIntHashMap;
+import technology.tabula.OrientedRulings;
+import technology.tabula.Page;
+import technology.tabula.Rectangle;
+import technology.tabula.RulingIntersections;
+import technology.tabula.TextElement;
+
+/**
+ * Sorts pages into pages without tables, pages that may have ruled tables and pages that may
+ * have tables without rulings, before any detector or extractor runs on them, from counts that
+ * are cheap to take on an extracted page: glyphs, rulings, images, and where chunks of text on
+ * lines start and end.
+ *
+ * Pages are only said to have no tables when there is no sign of a table at all: blank pages,
+ * pages that are only images, and pages of running text, whose lines are each one chunk of text.
+ */
+public class PageTriage {
+
+    public enum Decision {
+        NO_TABLE,
+        RULED,
+        BORDERLESS
+    }
+
+    // fewer glyphs than this can't make a table of a couple of rows and columns
+    private static final int MINIMUM_GLYPHS = 4;
+
+    // ruled tables have rulings crossing at least at the corners of one cell
+    private static final int MINIMUM_RULING_INTERSECTIONS = 4;
+
+    // chunks of text on a line are separated by gaps at least this many spaces wide, wider than
+    // the gaps between words of justified text
+    private static final float CHUNK_GAP_SPACES = 3f;
+
+    // tables without rulings have at least this many lines of several chunks of text, whose
+    // chunks start (or end) within ALIGNMENT_TOLERANCE of each other, at MINIMUM_ALIGNED_EDGES
+    // places at least
+    private static final int MINIMUM_TABLE_ROWS = 3;
+    private static final float ALIGNMENT_TOLERANCE = 1f;
+    private static final int MINIMUM_ALIGNED_EDGES = 2;
+
+    private final Decision decision;
+    private final int glyphCount;
+    private final int rulingCount;
+    private final int rulingIntersectionCount;
+    private final float imageCoverage;
+    private final int textLineCount;
+    private final int multiChunkLineCount;
+    private final int alignedEdgeCount;
+
+    private PageTriage(int glyphCount, int rulingCount, int rulingIntersectionCount, float imageCoverage,
+                       int textLineCount, int multiChunkLineCount, int alignedEdgeCount) {
+        this.glyphCount = glyphCount;
+        this.rulingCount = rulingCount;
+        this.rulingIntersectionCount = rulingIntersectionCount;
+        this.imageCoverage = imageCoverage;
+        this.textLineCount = textLineCount;
+        this.multiChunkLineCount = multiChunkLineCount;
+        this.alignedEdgeCount = alignedEdgeCount;
+
+        if (glyphCount < MINIMUM_GLYPHS) {
+            this.decision = Decision.NO_TABLE;
+        }
+        else if (rulingIntersectionCount >= MINIMUM_RULING_INTERSECTIONS) {
+            this.decision = Decision.RULED;
+        }
+        else if (multiChunkLineCount >= MINIMUM_TABLE_ROWS && alignedEdgeCount >= MINIMUM_ALIGNED_EDGES) {
+            this.decision = Decision.BORDERLESS;
+        }
+        else {
+            this.decision = Decision.NO_TABLE;
+        }
+    }
+
+    public static PageTriage triage(Page page) {
+        List<TextElement> glyphs = new ArrayList<TextElement>();
+        if (page.getText() != null) {
+            for (TextElement te : page.getText()) {
+                if (!te.getText().trim().isEmpty()) {
+                    glyphs.add(te);
+                }
+            }
+        }
+
+        int rulingCount = page.getHorizontalRulings().size() + page.getVerticalRulings().size();
+        int intersections = rulingCount == 0 ? 0 :
+                new RulingIntersections(page.getHorizontalRulings(), page.getVerticalRulings()).size();
+
+        double imageArea = 0;
+        for (Rectangle image : page.getImageAreas()) {
+            Rectangle2D visible = image.createIntersection(page);
+            if (!visible.isEmpty()) {
+                imageArea += visible.getWidth() * visible.getHeight();
+            }
+        }
+        float imageCoverage = page.getArea() > 0 ? (float) Math.min(1, imageArea / page.getArea()) : 0;
+
+        // lines of text, and the left and right ends of the chunks of text of lines with several
+        List<int[]> lines = TextLines.groupByLines(glyphs);
+        int multiChunkLines = 0;
+        float[] lefts = new float[16], rights = new float[16];
+        int chunks = 0;
+        for (int[] line : lines) {
+            long[] byLeft = new long[line.length];
+            for (int i = 0; i < line.length; i++) {
+                byLeft[i] = LongIntHashMap.pack(OrientedRulings.sortableBits(glyphs.get(line[i]).getLeft() + 0f), line[i]);
+            }
+            Arrays.sort(byLeft);
+
+            int firstChunk = chunks;
+            float chunkRight = 0;
+            for (int i = 0; i < byLeft.length; i++) {
+                TextElement te = glyphs.get(LongIntHashMap.unpackLow(byLeft[i]));
+                if (i == 0 || te.getLeft() - chunkRight > CHUNK_GAP_SPACES * TextLines.spaceWidth(te)) {
+                    if (chunks == lefts.length) {
+                        lefts = Arrays.copyOf(lefts, chunks * 2);
+                        rights = Arrays.copyOf(rights, chunks * 2);
+                    }
+                    lefts[chunks] = te.getLeft();
+                    chunks++;
+                    chunkRight = te.getRight();
+                }
+                else {
+                    chunkRight = Math.max(chunkRight, te.getRight());
+                }
+                rights[chunks - 1] = chunkRight;
+            }
+
+            if (chunks - firstChunk > 1) {
+                multiChunkLines++;
+            }
+            else {
+                // lines of one chunk, like running text, say nothing about columns
+                chunks = firstChunk;
+            }
+        }
+        int alignedEdges = countAligned(lefts, chunks) + countAligned(rights, chunks);
+
+        return new PageTriage(glyphs.size(), rulingCount, intersections, imageCoverage,
+                              lines.size(), multiChunkLines, alignedEdges);
+    }
+
+    // number of groups of at least MINIMUM_TABLE_ROWS of the first n positions, each within
+    // ALIGNMENT_TOLERANCE of the next
+    private static int countAligned(float[] positions, int n) {
+        float[] sorted = Arrays.copyOf(positions, n);
+        Arrays.sort(sorted);
+        int rv = 0;
+        int groupSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && sorted[i] - sorted[i - 1] > ALIGNMENT_TOLERANCE) {
+                if (groupSize >= MINIMUM_TABLE_ROWS) {
+                    rv++;
+                }
+                groupSize = 0;
+            }
+            groupSize++;
+        }
+        if (groupSize >= MINIMUM_TABLE_ROWS) {
+            rv++;
+        }
+        return rv;
+    }
+
+    public Decision getDecision() {
+        return decision;
+    }
+
+    /**
+     * @return number of glyphs on the page, not counting white space
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public int getRulingCount() {
+        return rulingCount;
+    }
+
+    public int getRulingIntersectionCount() {
+        return rulingIntersectionCount;
+    }
+
+    /**
+     * @return fraction of the page covered by images
+     */
+    public float getImageCoverage() {
+        return imageCoverage;
+    }
+
+    /**
+     * @return whether the page has images, but no text
+     */
+    public boolean isImageOnly() {
+        return glyphCount == 0 && imageCoverage > 0;
+    }
+
+    public int getTextLineCount() {
+        return textLineCount;
+    }
+
+    /**
+     * @return number of lines of text with several chunks of text, separated by wide gaps
+     */
+    public int getMultiChunkLineCount() {
+        return multiChunkLineCount;
+    }
+
+    /**
+     * @return number of places where chunks of text of several such lines start or end
+     */
+    public int getAlignedEdgeCount() {
+        return alignedEdgeCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d glyphs, %d rulings, %d ruling intersections, %.0f%% images, %d text lines, %d with several chunks, %d aligned edges)",
+                decision, glyphCount, rulingCount, rulingIntersectionCount, imageCoverage * 100,
+                textLineCount, multiChunkLineCount, alignedEdgeCount);
+    }
+}
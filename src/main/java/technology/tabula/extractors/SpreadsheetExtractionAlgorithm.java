@@ -3,6 +3,7 @@ package technology.tabula.extractors;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -10,14 +11,26 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import technology.tabula.Cell;
+import technology.tabula.LongIntHashMap;
+import technology.tabula.OrientedRulings;
 import technology.tabula.Page;
 import technology.tabula.Rectangle;
 import technology.tabula.Ruling;
+import technology.tabula.RulingIntersections;
 import technology.tabula.Table;
 import technology.tabula.TableWithRulingLines;
 import technology.tabula.TextElement;
+import technology.tabula.UnionFind;
 import technology.tabula.Utils;
 import technology.tabula.writers.CSVWriter;
 
@@ -27,6 +40,23 @@ import technology.tabula.writers.CSVWriter;
  */
 public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
 
+    // don't bother starting threads for less cells than this, per thread
+    private static final int MIN_CELLS_PER_THREAD = 64;
+
+    // seconds the threads of the pool that merges text wait for the next page before they end
+    private static final long IDLE_THREAD_SECONDS = 10;
+
+    private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+        private final ThreadFactory threads = Executors.defaultThreadFactory();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = this.threads.newThread(r);
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
     private static final float MAGIC_HEURISTIC_NUMBER = 0.65f;
 
     private static final Comparator<Point2D> POINT_COMPARATOR = new Comparator<Point2D>() {
@@ -81,6 +111,40 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
     };
 
 
+    // group cells with union-find instead of tracing the outline of their union
+    private boolean useCellGrouping = false;
+
+    public void setUseCellGrouping(boolean useCellGrouping) {
+        this.useCellGrouping = useCellGrouping;
+    }
+
+    // number of threads that merge the text of cells into words, 1 to do it on the calling thread
+    private int parallelism = 1;
+
+    // runs those threads: the one given to setExecutor, or a pool of this algorithm's own, made
+    // for the first page that needs it and kept for the next ones
+    private ExecutorService executor = null;
+    private boolean ownExecutor = false;
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        if (parallelism != this.parallelism) {
+            this.shutdownOwnExecutor();
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Merges the text of cells on the threads of executor, when parallelism is greater than 1,
+     * instead of on a pool of this algorithm's own. The caller shuts executor down.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.shutdownOwnExecutor();
+        this.executor = executor;
+    }
+
     @Override
     public List<? extends Table> extract(Page page) {
         return extract(page, page.getRulings());
@@ -90,6 +154,12 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
      * Extract a list of Table from page using rulings as separators
      */
     public List<? extends Table> extract(Page page, List<Ruling> rulings) {
+        return extract(page, rulings, true);
+    }
+
+    // the tables of extract(page, rulings), with empty cells if withText is false: the
+    // text of cells doesn't change the rows and columns of tables, nor their order
+    List<TableWithRulingLines> extract(Page page, List<Ruling> rulings, boolean withText) {
         // split rulings into horizontal and vertical
         List<Ruling> horizontalR = new ArrayList<Ruling>(),
                 verticalR = new ArrayList<Ruling>();
@@ -106,19 +176,37 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         verticalR = Ruling.collapseOrientedRulings(verticalR);
 
         List<Cell> cells = findCells(horizontalR, verticalR);
-        List<Rectangle> spreadsheetAreas = findSpreadsheetsFromCells(cells);
+        List<Rectangle> spreadsheetAreas = this.useCellGrouping ?
+                groupCellsIntoSpreadsheets(cells) :
+                findSpreadsheetsFromCells(cells);
 
-        List<TableWithRulingLines> spreadsheets = new ArrayList<TableWithRulingLines>();
+        List<List<Cell>> cellsByArea = new ArrayList<List<Cell>>();
+        Set<Cell> cellsInAreas = new HashSet<Cell>();
         for (Rectangle area: spreadsheetAreas) {
-
             List<Cell> overlappingCells = new ArrayList<Cell>();
             for (Cell c: cells) {
                 if (c.intersects(area)) {
-
-                    c.setTextElements(TextElement.mergeWords(page.getText(c)));
                     overlappingCells.add(c);
+                    cellsInAreas.add(c);
                 }
             }
+            cellsByArea.add(overlappingCells);
+        }
+
+        if (withText) {
+            List<Cell> cellsWithText = new ArrayList<Cell>();
+            for (Cell c: cells) {
+                if (cellsInAreas.contains(c)) {
+                    cellsWithText.add(c);
+                }
+            }
+            this.mergeWordsInCells(cellsWithText, assignTextToCells(page.getText(), cellsWithText));
+        }
+
+        List<TableWithRulingLines> spreadsheets = new ArrayList<TableWithRulingLines>();
+        for (int i = 0; i < spreadsheetAreas.size(); i++) {
+            Rectangle area = spreadsheetAreas.get(i);
+            List<Cell> overlappingCells = cellsByArea.get(i);
 
             List<Ruling> horizontalOverlappingRulings = new ArrayList<Ruling>();
             for (Ruling hr: horizontalR) {
@@ -144,6 +232,181 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         return spreadsheets;
     }
 
+    /**
+     * Distributes textElements among cells in a single sweep, top to bottom.
+     *
+     * A TextElement belongs to every cell that fully contains it, as in page.getText(cell).
+     * The TextElements of each cell are taken in their order in textElements, then sorted
+     * with Utils.sort. Utils.sort isn't a total order, so what it returns depends on that
+     * order, and the order a spatial index finds TextElements in would make it vary.
+     *
+     * @return for each cell, in the same order as cells, the TextElements it contains
+     */
+    public static List<List<TextElement>> assignTextToCells(List<TextElement> textElements, List<? extends Rectangle> cells) {
+        int cellCount = cells.size();
+        List<List<TextElement>> rv = new ArrayList<List<TextElement>>(cellCount);
+        for (int i = 0; i < cellCount; i++) {
+            rv.add(new ArrayList<TextElement>());
+        }
+        if (cellCount == 0 || textElements.isEmpty()) {
+            return rv;
+        }
+
+        // bounds are computed as in RectangleSpatialIndex, so that containment
+        // is decided exactly as in Page.getText(Rectangle)
+        float[] tops = new float[cellCount], lefts = new float[cellCount];
+        float[] bottoms = new float[cellCount], rights = new float[cellCount];
+        float maxWidth = 0;
+        long[] byTop = new long[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            Rectangle c = cells.get(i);
+            tops[i] = (float) c.getY();
+            lefts[i] = (float) c.getX();
+            bottoms[i] = (float) (c.getY() + c.getHeight());
+            rights[i] = (float) (c.getX() + c.getWidth());
+            maxWidth = Math.max(maxWidth, rights[i] - lefts[i]);
+            byTop[i] = LongIntHashMap.pack(OrientedRulings.sortableBits(tops[i]), i);
+        }
+        Arrays.sort(byTop);
+
+        int textCount = textElements.size();
+        long[] textsByTop = new long[textCount];
+        for (int t = 0; t < textCount; t++) {
+            textsByTop[t] = LongIntHashMap.pack(OrientedRulings.sortableBits((float) textElements.get(t).getY()), t);
+        }
+        Arrays.sort(textsByTop);
+
+        // (cell, TextElement) pairs found
+        long[] pairs = new long[Math.max(16, textCount)];
+        int pairCount = 0;
+
+        // cells whose top is above the current TextElement and whose bottom isn't, sorted by left
+        int[] active = new int[cellCount];
+        int activeCount = 0;
+        int nextCell = 0;
+
+        for (long packedText : textsByTop) {
+            int t = LongIntHashMap.unpackLow(packedText);
+            TextElement te = textElements.get(t);
+            float top = (float) te.getY(), left = (float) te.getX();
+            float bottom = (float) (te.getY() + te.getHeight()), right = (float) (te.getX() + te.getWidth());
+
+            if (nextCell < cellCount && tops[LongIntHashMap.unpackLow(byTop[nextCell])] <= top) {
+                // drop the cells that end above this TextElement, they can't contain this or any later one
+                int kept = 0;
+                for (int k = 0; k < activeCount; k++) {
+                    if (bottoms[active[k]] >= top) {
+                        active[kept++] = active[k];
+                    }
+                }
+                activeCount = kept;
+
+                while (nextCell < cellCount && tops[LongIntHashMap.unpackLow(byTop[nextCell])] <= top) {
+                    int c = LongIntHashMap.unpackLow(byTop[nextCell++]);
+                    int k = upperBound(active, activeCount, lefts, lefts[c]);
+                    System.arraycopy(active, k, active, k + 1, activeCount - k);
+                    active[k] = c;
+                    activeCount++;
+                }
+            }
+
+            // cells that can contain te start between right - maxWidth and left
+            for (int k = upperBound(active, activeCount, lefts, left) - 1; k >= 0 && lefts[active[k]] >= right - maxWidth; k--) {
+                int c = active[k];
+                if (rights[c] >= right && bottoms[c] >= bottom) {
+                    if (pairCount == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairCount << 1);
+                    }
+                    pairs[pairCount++] = LongIntHashMap.pack(c, t);
+                }
+            }
+        }
+
+        // add TextElements to their cells in their order in textElements, before sorting them
+        Arrays.sort(pairs, 0, pairCount);
+        for (int k = 0; k < pairCount; k++) {
+            rv.get(LongIntHashMap.unpackHigh(pairs[k])).add(textElements.get(LongIntHashMap.unpackLow(pairs[k])));
+        }
+        for (List<TextElement> cellText : rv) {
+            Utils.sort(cellText);
+        }
+        return rv;
+    }
+
+    /**
+     * Sets the TextElements of each cell to textElements.get(i), merged into words.
+     * If parallelism is greater than 1, cells are processed by that many threads
+     */
+    private void mergeWordsInCells(final List<Cell> cells, final List<List<TextElement>> textElements) {
+        int threads = Math.min(this.parallelism, cells.size() / MIN_CELLS_PER_THREAD);
+        if (threads <= 1) {
+            for (int i = 0; i < cells.size(); i++) {
+                cells.get(i).setTextElements(TextElement.mergeWords(textElements.get(i)));
+            }
+            return;
+        }
+
+        ExecutorService executor = this.executor();
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            int chunk = (cells.size() + threads - 1) / threads;
+            for (int start = 0; start < cells.size(); start += chunk) {
+                final int from = start, to = Math.min(cells.size(), start + chunk);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = from; i < to; i++) {
+                            cells.get(i).setTextElements(TextElement.mergeWords(textElements.get(i)));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private ExecutorService executor() {
+        if (this.executor == null) {
+            // threads of a pool of our own end when idle, so it never needs to be shut down
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(this.parallelism, this.parallelism,
+                    IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), DAEMON_THREADS);
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.ownExecutor = true;
+        }
+        return this.executor;
+    }
+
+    private void shutdownOwnExecutor() {
+        if (this.ownExecutor) {
+            this.executor.shutdown();
+        }
+        this.executor = null;
+        this.ownExecutor = false;
+    }
+
+    // first position in active[0..count) whose left is greater than value
+    private static int upperBound(int[] active, int count, float[] lefts, float value) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lefts[active[mid]] <= value) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
     // old method, kept here for compatibility
     // use the static version instead
     @Deprecated
@@ -179,49 +442,33 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
     }
 
     public static List<Cell> findCells(List<Ruling> horizontalRulingLines, List<Ruling> verticalRulingLines) {
+        return findCells(new RulingIntersections(horizontalRulingLines, verticalRulingLines));
+    }
+
+    public static List<Cell> findCells(RulingIntersections intersections) {
         List<Cell> cellsFound = new ArrayList<Cell>();
-        Map<Point2D, Ruling[]> intersectionPoints = Ruling.findIntersections(horizontalRulingLines, verticalRulingLines);
-        List<Point2D> intersectionPointsList = new ArrayList<Point2D>(intersectionPoints.keySet());
-        Collections.sort(intersectionPointsList, POINT_COMPARATOR);
-        boolean doBreak = false;
-
-        for (int i = 0; i < intersectionPointsList.size(); i++) {
-            Point2D topLeft = intersectionPointsList.get(i);
-            Ruling[] hv = intersectionPoints.get(topLeft);
-            doBreak = false;
-
-            // CrossingPointsDirectlyBelow( topLeft );
-            List<Point2D> xPoints = new ArrayList<Point2D>();
-            // CrossingPointsDirectlyToTheRight( topLeft );
-            List<Point2D> yPoints = new ArrayList<Point2D>();
-
-            for (Point2D p: intersectionPointsList.subList(i, intersectionPointsList.size())) {
-                if (p.getX() == topLeft.getX() && p.getY() > topLeft.getY()) {
-                    xPoints.add(p);
-                }
-                if (p.getY() == topLeft.getY() && p.getX() > topLeft.getX()) {
-                    yPoints.add(p);
-                }
-            }
+
+        for (int topLeft: intersections.rowMajorOrder()) {
+            // walk the crossing points directly below topLeft, and for each of them
+            // the crossing points directly to the right of topLeft
             outer:
-            for (Point2D xPoint: xPoints) {
-                if (doBreak) { break; }
+            for (int xPoint = intersections.nextInColumn(topLeft); xPoint != -1; xPoint = intersections.nextInColumn(xPoint)) {
 
                 // is there a vertical edge b/w topLeft and xPoint?
-                if (!hv[1].equals(intersectionPoints.get(xPoint)[1])) {
+                if (!intersections.sameVertical(topLeft, xPoint)) {
                     continue;
                 }
-                for (Point2D yPoint: yPoints) {
+                for (int yPoint = intersections.nextInRow(topLeft); yPoint != -1; yPoint = intersections.nextInRow(yPoint)) {
                     // is there an horizontal edge b/w topLeft and yPoint ?
-                    if (!hv[0].equals(intersectionPoints.get(yPoint)[0])) {
+                    if (!intersections.sameHorizontal(topLeft, yPoint)) {
                         continue;
                     }
-                    Point2D btmRight = new Point2D.Float((float) yPoint.getX(), (float) xPoint.getY());
-                    if (intersectionPoints.containsKey(btmRight)
-                            && intersectionPoints.get(btmRight)[0].equals(intersectionPoints.get(xPoint)[0])
-                            && intersectionPoints.get(btmRight)[1].equals(intersectionPoints.get(yPoint)[1])) {
-                            cellsFound.add(new Cell(topLeft, btmRight));
-                        doBreak = true;
+                    int btmRight = intersections.indexOf(intersections.getX(yPoint), intersections.getY(xPoint));
+                    if (btmRight != -1
+                            && intersections.sameHorizontal(btmRight, xPoint)
+                            && intersections.sameVertical(btmRight, yPoint)) {
+                        cellsFound.add(new Cell(intersections.getPoint(topLeft),
+                                new Point2D.Float(intersections.getX(yPoint), intersections.getY(xPoint))));
                         break outer;
                     }
                 }
@@ -341,6 +588,166 @@ public class SpreadsheetExtractionAlgorithm implements ExtractionAlgorithm {
         return rectangles;
     }
 
+    /**
+     * Alternative to findSpreadsheetsFromCells: groups cells that share (part of) an edge
+     * with union-find, and returns the bounding box of each group, sorted as Utils.sort would.
+     *
+     * Adjacent edges are looked up in a spatial hash keyed by the snapped edge coordinate,
+     * so this is O(n log n) on the number of cells. Unlike findSpreadsheetsFromCells,
+     * holes in a group of cells don't become rectangles of their own, and cells that only
+     * touch at a corner aren't grouped together.
+     */
+    public static List<Rectangle> groupCellsIntoSpreadsheets(List<? extends Rectangle> cells) {
+        int n = cells.size();
+        float[] tops = new float[n], lefts = new float[n], bottoms = new float[n], rights = new float[n];
+        for (int i = 0; i < n; i++) {
+            Rectangle c = cells.get(i);
+            tops[i] = c.getTop();
+            lefts[i] = c.getLeft();
+            bottoms[i] = c.getBottom();
+            rights[i] = c.getRight();
+        }
+
+        UnionFind groups = new UnionFind(n);
+
+        // cells whose left edge is on x, to be matched against right edges on x
+        EdgeHash byLeft = new EdgeHash(lefts, tops, bottoms);
+        // cells whose top edge is on y, to be matched against bottom edges on y
+        EdgeHash byTop = new EdgeHash(tops, lefts, rights);
+
+        for (int i = 0; i < n; i++) {
+            byLeft.unionAdjacent(i, rights[i], tops[i], bottoms[i], groups);
+            byTop.unionAdjacent(i, bottoms[i], lefts[i], rights[i], groups);
+            // overlapping cells that share their left edge (i.e. duplicates)
+            byLeft.unionAdjacent(i, lefts[i], tops[i], bottoms[i], groups);
+        }
+
+        // bounding box of each group
+        int[] groupOf = new int[n];
+        Arrays.fill(groupOf, -1);
+        List<Rectangle> rectangles = new ArrayList<Rectangle>();
+        for (int i = 0; i < n; i++) {
+            int root = groups.find(i);
+            if (groupOf[root] == -1) {
+                groupOf[root] = rectangles.size();
+                rectangles.add(new Rectangle(tops[i], lefts[i], rights[i] - lefts[i], bottoms[i] - tops[i]));
+            }
+            else {
+                Rectangle r = rectangles.get(groupOf[root]);
+                float top = Math.min(r.getTop(), tops[i]), left = Math.min(r.getLeft(), lefts[i]);
+                float bottom = Math.max(r.getBottom(), bottoms[i]), right = Math.max(r.getRight(), rights[i]);
+                r.setRect(left, top, right - left, bottom - top);
+            }
+        }
+
+        Utils.sort(rectangles);
+        return rectangles;
+    }
+
+    /**
+     * Spatial hash of cell edges perpendicular to one axis: cells are bucketed by the
+     * snapped coordinate of that edge (key), and sorted by their span start within a bucket
+     */
+    private static final class EdgeHash {
+        private static final float SNAP_SCALE = 100f;
+
+        private final float[] spanStarts, spanEnds;
+        private final int[] sorted;
+        private final float[] keys;
+        // snapped key -> bucket number; each bucket is a range of sorted
+        private final LongIntHashMap buckets = new LongIntHashMap();
+        private final int[] bucketStarts, bucketEnds;
+        private final float[] bucketMaxSpans;
+
+        EdgeHash(float[] keys, float[] spanStarts, float[] spanEnds) {
+            this.keys = keys;
+            this.spanStarts = spanStarts;
+            this.spanEnds = spanEnds;
+
+            int n = keys.length;
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = LongIntHashMap.pack(snap(keys[i]), i);
+            }
+            Arrays.sort(order);
+            this.sorted = new int[n];
+            for (int k = 0; k < n; k++) {
+                this.sorted[k] = LongIntHashMap.unpackLow(order[k]);
+            }
+
+            this.bucketStarts = new int[n];
+            this.bucketEnds = new int[n];
+            this.bucketMaxSpans = new float[n];
+            int k = 0;
+            while (k < n) {
+                int snapped = LongIntHashMap.unpackHigh(order[k]);
+                int end = k;
+                float maxSpan = 0;
+                while (end < n && LongIntHashMap.unpackHigh(order[end]) == snapped) {
+                    maxSpan = Math.max(maxSpan, spanEnds[this.sorted[end]] - spanStarts[this.sorted[end]]);
+                    end++;
+                }
+                int bucket = this.buckets.size();
+                this.bucketStarts[bucket] = k;
+                this.bucketEnds[bucket] = end;
+                this.bucketMaxSpans[bucket] = maxSpan;
+                this.buckets.put(snapped, bucket, -1);
+                this.sortBySpanStart(k, end);
+                k = end;
+            }
+        }
+
+        // union cell i with every cell whose edge is on key and whose span overlaps [spanStart, spanEnd]
+        void unionAdjacent(int i, float key, float spanStart, float spanEnd, UnionFind groups) {
+            int snapped = snap(key);
+            for (int b = snapped - 1; b <= snapped + 1; b++) {
+                int bucket = this.buckets.get(b, -1);
+                if (bucket == -1) {
+                    continue;
+                }
+                int end = this.bucketEnds[bucket];
+                int k = this.lowerBound(this.bucketStarts[bucket], end, spanStart - this.bucketMaxSpans[bucket]);
+                for (; k < end; k++) {
+                    int j = this.sorted[k];
+                    if (this.spanStarts[j] >= spanEnd) {
+                        break;
+                    }
+                    if (j != i && this.spanEnds[j] > spanStart && Utils.feq(this.keys[j], key)) {
+                        groups.union(i, j);
+                    }
+                }
+            }
+        }
+
+        private void sortBySpanStart(int from, int to) {
+            long[] order = new long[to - from];
+            for (int k = from; k < to; k++) {
+                order[k - from] = LongIntHashMap.pack(OrientedRulings.sortableBits(this.spanStarts[this.sorted[k]]), this.sorted[k]);
+            }
+            Arrays.sort(order);
+            for (int k = from; k < to; k++) {
+                this.sorted[k] = LongIntHashMap.unpackLow(order[k - from]);
+            }
+        }
+
+        private int lowerBound(int from, int to, float value) {
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (this.spanStarts[this.sorted[mid]] < value) {
+                    from = mid + 1;
+                }
+                else {
+                    to = mid;
+                }
+            }
+            return from;
+        }
+
+        private static int snap(float v) {
+            return Math.round(v * SNAP_SCALE);
+        }
+    }
+
     @Override
     public String toString() {
         return "spreadsheet";
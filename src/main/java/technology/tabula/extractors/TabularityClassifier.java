@@ -0,0 +1,50 @@
+package technology.tabula.extractors;
+
+import java.util.List;
+
+import technology.tabula.Page;
+import technology.tabula.TableWithRulingLines;
+import technology.tabula.TextElement;
+import technology.tabula.Utils;
+
+/**
+ * Decides if a page should be extracted with SpreadsheetExtractionAlgorithm or with
+ * BasicExtractionAlgorithm, as SpreadsheetExtractionAlgorithm.isPageTabular does, without
+ * extracting the text of either table.
+ *
+ * isPageTabular compares the number of rows and columns of the first table each algorithm
+ * extracts. Those numbers don't depend on the text of the cells, so this takes the ruled
+ * table without assigning text to its cells nor merging it into words, and counts the lines
+ * and columns of the unruled table instead of building it. Pages without text aren't tabular.
+ */
+public class TabularityClassifier {
+
+    // same thresholds as SpreadsheetExtractionAlgorithm.isPageTabular
+    private static final float MAGIC_HEURISTIC_NUMBER = 0.65f;
+
+    public static boolean isTabular(Page page) {
+        List<TextElement> texts = page.getText();
+        if (texts.isEmpty()) {
+            return false;
+        }
+
+        // minimal region of the page that contains every character, as in isPageTabular
+        Page minimalRegion = page.getArea(Utils.bounds(texts));
+
+        List<TableWithRulingLines> tables = new SpreadsheetExtractionAlgorithm()
+                .extract(minimalRegion, minimalRegion.getRulings(), false);
+        if (tables.isEmpty()) {
+            return false;
+        }
+        TableWithRulingLines table = tables.get(0);
+        int rowsDefinedByLines = table.getRows().size();
+        int colsDefinedByLines = table.getCols().size();
+
+        int[] definedWithoutLines = new BasicExtractionAlgorithm().countRowsAndColumns(minimalRegion);
+        int rowsDefinedWithoutLines = definedWithoutLines[0];
+        int colsDefinedWithoutLines = definedWithoutLines[1];
+
+        float ratio = (((float) colsDefinedByLines / colsDefinedWithoutLines) + ((float) rowsDefinedByLines / rowsDefinedWithoutLines)) / 2.0f;
+        return ratio > MAGIC_HEURISTIC_NUMBER && ratio < (1 / MAGIC_HEURISTIC_NUMBER);
+    }
+}
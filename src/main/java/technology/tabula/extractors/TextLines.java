@@ -0,0 +1,77 @@
+package technology.tabula.extractors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import technology.tabula.LongIntHashMap;
+import technology.tabula.OrientedRulings;
+import technology.tabula.TextElement;
+
+/**
+ * Groups glyphs into lines of text, and the orderings and measures of glyphs that takes,
+ * without merging them into words or chunks first.
+ */
+final class TextLines {
+
+    // glyphs that overlap less than this (relative to the shortest) are on different lines, as in TextChunk.groupByLines
+    static final float LINE_OVERLAP_RATIO = 0.1f;
+
+    private TextLines() {
+    }
+
+    // indexes of texts grouped into lines, grouping vertically overlapping glyphs top to bottom
+    static List<int[]> groupByLines(List<TextElement> texts) {
+        List<int[]> rv = new ArrayList<int[]>();
+        long[] byTop = sortedBy(texts, true);
+        int lineStart = 0;
+        float lineTop = 0, lineBottom = 0;
+        for (int i = 0; i < byTop.length; i++) {
+            TextElement te = texts.get(LongIntHashMap.unpackLow(byTop[i]));
+            float top = te.getTop(), bottom = te.getBottom();
+            float overlap = Math.min(bottom, lineBottom) - Math.max(top, lineTop);
+            float shortest = Math.min(bottom - top, lineBottom - lineTop);
+            if (i == 0 || overlap < LINE_OVERLAP_RATIO * shortest || overlap <= 0) {
+                if (i > 0) {
+                    rv.add(lineOf(byTop, lineStart, i));
+                }
+                lineStart = i;
+                lineTop = top;
+                lineBottom = bottom;
+            }
+            else {
+                lineTop = Math.min(lineTop, top);
+                lineBottom = Math.max(lineBottom, bottom);
+            }
+        }
+        if (byTop.length > 0) {
+            rv.add(lineOf(byTop, lineStart, byTop.length));
+        }
+        return rv;
+    }
+
+    // indexes of texts, packed with their top (or left) so that they sort by it
+    static long[] sortedBy(List<TextElement> texts, boolean top) {
+        long[] rv = new long[texts.size()];
+        for (int i = 0; i < rv.length; i++) {
+            TextElement te = texts.get(i);
+            rv[i] = LongIntHashMap.pack(OrientedRulings.sortableBits((top ? te.getTop() : te.getLeft()) + 0f), i);
+        }
+        Arrays.sort(rv);
+        return rv;
+    }
+
+    // width of a space in the font of te, or the width of te if the font doesn't say
+    static float spaceWidth(TextElement te) {
+        float width = te.getWidthOfSpace();
+        return Float.isNaN(width) || width <= 0 ? (float) te.getWidth() : width;
+    }
+
+    private static int[] lineOf(long[] packed, int from, int to) {
+        int[] rv = new int[to - from];
+        for (int i = from; i < to; i++) {
+            rv[i - from] = LongIntHashMap.unpackLow(packed[i]);
+        }
+        return rv;
+    }
+}
@@ -20,6 +20,9 @@ public class TableSerializer implements JsonSerializer<Table> {
         
         JsonObject object = new JsonObject();
         object.addProperty("extraction_method", table.getExtractionAlgorithm().toString());
+        if (table.getPageTriage() != null) {
+            object.addProperty("page_triage", table.getPageTriage().toString());
+        }
         object.addProperty("top", table.getTop());
         object.addProperty("left", table.getLeft());
         object.addProperty("width", table.getWidth());
@@ -0,0 +1,141 @@
+package technology.tabula;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import technology.tabula.detectors.NurminenDetectionAlgorithm;
+import technology.tabula.detectors.NurminenDetectionAlgorithm.EdgeSource;
+
+/**
+ * Runs NurminenDetectionAlgorithm over the icdar2013 PDFs with its default settings and a few
+ * cheaper ones (lower resolution, 1 bit images, coarse to fine, several threads, the page's own
+ * rulings instead of an image of it), and prints the time each one took and how many of the
+ * tables found with the default settings it also found, and the other way around. Tables agree when their overlap ratio is at least 0.9
+ */
+public class BenchmarkNurminenDetector {
+
+    private static final float AGREEMENT_OVERLAP_RATIO = 0.9f;
+
+    private static final class Configuration {
+        final String name;
+        final NurminenDetectionAlgorithm detector;
+        long nanos;
+        int tables, matched;
+
+        Configuration(String name, int resolution, int imageType, boolean coarseToFine) {
+            this(name, resolution, imageType, coarseToFine, 1);
+        }
+
+        Configuration(String name, int resolution, int imageType, boolean coarseToFine, int parallelism) {
+            this(name, resolution, imageType, coarseToFine, parallelism, EdgeSource.RASTER);
+        }
+
+        Configuration(String name, EdgeSource edgeSource) {
+            this(name, 144, BufferedImage.TYPE_BYTE_GRAY, false, 1, edgeSource);
+        }
+
+        Configuration(String name, int resolution, int imageType, boolean coarseToFine, int parallelism, EdgeSource edgeSource) {
+            this.name = name;
+            this.detector = new NurminenDetectionAlgorithm();
+            this.detector.setResolution(resolution);
+            this.detector.setImageType(imageType);
+            this.detector.setCoarseToFine(coarseToFine);
+            this.detector.setParallelism(parallelism);
+            this.detector.setEdgeSource(edgeSource);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Logger.getLogger("org.apache.pdfbox").setLevel(Level.OFF);
+
+        List<File> pdfs = new ArrayList<File>();
+        for (String regionCode : new String[] { "eu", "us" }) {
+            File dir = new File("src/test/resources/technology/tabula/icdar2013-dataset/competition-dataset-" + regionCode);
+            File[] files = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.toLowerCase().endsWith(".pdf");
+                }
+            });
+            Arrays.sort(files);
+            pdfs.addAll(Arrays.asList(files));
+        }
+
+        Configuration baseline = new Configuration("144 dpi, gray (default)", 144, BufferedImage.TYPE_BYTE_GRAY, false);
+        List<Configuration> configurations = Arrays.asList(
+                new Configuration("72 dpi, gray", 72, BufferedImage.TYPE_BYTE_GRAY, false),
+                new Configuration("144 dpi, 1 bit", 144, BufferedImage.TYPE_BYTE_BINARY, false),
+                new Configuration("72 dpi, 1 bit", 72, BufferedImage.TYPE_BYTE_BINARY, false),
+                new Configuration("144 dpi, gray, coarse to fine", 144, BufferedImage.TYPE_BYTE_GRAY, true),
+                new Configuration("144 dpi, gray, 4 threads", 144, BufferedImage.TYPE_BYTE_GRAY, false, 4),
+                new Configuration("vector rulings", EdgeSource.VECTOR),
+                new Configuration("vector rulings, automatic", EdgeSource.AUTOMATIC));
+
+        int pages = 0, baselineTables = 0;
+        for (File pdf : pdfs) {
+            PDDocument document = PDDocument.load(pdf.getPath());
+            ObjectExtractor oe = new ObjectExtractor(document);
+            try {
+                PageIterator iter = oe.extract();
+                while (iter.hasNext()) {
+                    Page page = iter.next();
+                    pages++;
+
+                    long start = System.nanoTime();
+                    List<Rectangle> expected = baseline.detector.detect(page);
+                    baseline.nanos += System.nanoTime() - start;
+                    baselineTables += expected.size();
+
+                    StringBuilder line = new StringBuilder(String.format("%-30s %3d  %2d tables", pdf.getName(), page.getPageNumber(), expected.size()));
+                    for (Configuration configuration : configurations) {
+                        start = System.nanoTime();
+                        List<Rectangle> actual = configuration.detector.detect(page);
+                        configuration.nanos += System.nanoTime() - start;
+
+                        int found = countMatches(expected, actual);
+                        configuration.tables += actual.size();
+                        configuration.matched += found;
+                        if (found != expected.size() || found != actual.size()) {
+                            line.append(String.format("  %s: %d of %d, %d extra", configuration.name, found, expected.size(), actual.size() - countMatches(actual, expected)));
+                        }
+                    }
+                    System.out.println(line);
+                }
+            } finally {
+                oe.close();
+            }
+        }
+
+        System.out.println(String.format("%d pages, %d tables with the default settings", pages, baselineTables));
+        System.out.println(String.format("%-32s %10.1f ms", baseline.name, baseline.nanos / 1e6));
+        for (Configuration configuration : configurations) {
+            System.out.println(String.format("%-32s %10.1f ms (%.2fx)  found %d of %d tables (%.1f%%), %d tables in all",
+                    configuration.name, configuration.nanos / 1e6, (double) baseline.nanos / configuration.nanos,
+                    configuration.matched, baselineTables, 100.0 * configuration.matched / Math.max(1, baselineTables),
+                    configuration.tables));
+        }
+    }
+
+    // how many of expected have an area in actual that overlaps them enough
+    private static int countMatches(List<Rectangle> expected, List<Rectangle> actual) {
+        int rv = 0;
+        for (Rectangle e : expected) {
+            for (Rectangle a : actual) {
+                if (e.overlapRatio(a) >= AGREEMENT_OVERLAP_RATIO) {
+                    rv++;
+                    break;
+                }
+            }
+        }
+        return rv;
+    }
+}
@@ -0,0 +1,78 @@
+package technology.tabula;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import technology.tabula.UtilsForBenchmarking.Benchmark;
+import technology.tabula.detectors.PixelDifferences;
+
+/**
+ * Compares PixelDifferences comparing 8 pixels at a time with comparing them one by one,
+ * on test pages rendered as NurminenDetectionAlgorithm renders them: finds every pixel that
+ * differs from the one above it, and from the one to its left
+ */
+public class BenchmarkPixelDifferences {
+
+    private static final String[] PDFS = {
+            "src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+            "src/test/resources/technology/tabula/argentina_diputados_voting_record.pdf",
+            "src/test/resources/technology/tabula/twotables.pdf"
+    };
+
+    public static void main(String[] args) throws IOException {
+        final List<BufferedImage> images = new ArrayList<BufferedImage>();
+        for (String pdf : PDFS) {
+            PDDocument document = PDDocument.load(new File(pdf));
+            try {
+                for (Object page : document.getDocumentCatalog().getAllPages()) {
+                    images.add(((PDPage) page).convertToImage(BufferedImage.TYPE_BYTE_GRAY, 144));
+                }
+            } finally {
+                document.close();
+            }
+        }
+
+        int count = 0;
+        for (boolean wordwise : new boolean[] { false, true }) {
+            final boolean w = wordwise;
+            final int[] differences = new int[1];
+            UtilsForBenchmarking.time((wordwise ? "word at a time, " : "pixel at a time, ") + images.size() + " pages", new Benchmark() {
+                @Override
+                public void run() {
+                    differences[0] = 0;
+                    for (BufferedImage image : images) {
+                        differences[0] += countDifferences(image, w);
+                    }
+                }
+            });
+            if (wordwise && differences[0] != count) {
+                throw new AssertionError("found " + differences[0] + " differences, expected " + count);
+            }
+            count = differences[0];
+        }
+    }
+
+    private static int countDifferences(BufferedImage image, boolean wordwise) {
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int width = image.getWidth(), height = image.getHeight();
+        PixelDifferences differences = new PixelDifferences(data, 25, wordwise);
+        int rv = 0;
+        for (int y = 1; y < height; y++) {
+            int row = y * width;
+            for (int x = differences.next(row, row - width, 0, width); x < width; x = differences.next(row, row - width, x + 1, width)) {
+                rv++;
+            }
+            for (int x = differences.next(row, row - 1, 1, width); x < width; x = differences.next(row, row - 1, x + 1, width)) {
+                rv++;
+            }
+        }
+        return rv;
+    }
+}
@@ -0,0 +1,58 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import technology.tabula.UtilsForBenchmarking.Benchmark;
+import technology.tabula.extractors.BasicExtractionAlgorithm;
+
+/**
+ * Compares finding the columns of a very long page of text with columnRegions and with a
+ * projection profile, and times building projection profiles of a normal page
+ */
+public class BenchmarkProjectionProfile {
+
+    // a page of rows lines of words in cols columns, of varying lengths
+    private static Page makePage(int rows, int cols) {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<TextElement>();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                for (int k = 0; k < 3 + (i * 7 + j) % 8; k++) {
+                    TextElement te = new TextElement(20 + i * 10, 20 + j * 70 + k * 5, 5f, 8f, null, 8f,
+                            String.valueOf((char) ('a' + k)), 5f);
+                    texts.add(te);
+                    index.add(te);
+                }
+            }
+        }
+        return new Page(0, 0, 40 + cols * 70, 40 + rows * 10, 0, 1, null, texts, new ArrayList<Ruling>(), 5f, 8f, index);
+    }
+
+    public static void main(String[] args) {
+        final Page longPage = makePage(5000, 8);
+        final List<Line> lines = TextChunk.groupByLines(TextElement.mergeWords(longPage.getText()));
+
+        UtilsForBenchmarking.time("columnPositions, " + lines.size() + " lines", new Benchmark() {
+            @Override
+            public void run() {
+                BasicExtractionAlgorithm.columnPositions(lines);
+            }
+        });
+        UtilsForBenchmarking.time("projectionProfileColumnPositions, " + lines.size() + " lines", new Benchmark() {
+            @Override
+            public void run() {
+                BasicExtractionAlgorithm.projectionProfileColumnPositions(longPage, lines);
+            }
+        });
+
+        final Page page = makePage(60, 8);
+        final List<TextElement> texts = page.getText();
+        UtilsForBenchmarking.time("ProjectionProfile, " + texts.size() + " glyphs", new Benchmark() {
+            @Override
+            public void run() {
+                new ProjectionProfile(page, texts, 7.5f, 8f);
+            }
+        });
+    }
+}
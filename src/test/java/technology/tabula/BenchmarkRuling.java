@@ -0,0 +1,111 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import technology.tabula.UtilsForBenchmarking.Benchmark;
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+
+public class BenchmarkRuling {
+
+    public static void main(String[] args) {
+        // dense 100x100 ruled grid
+        final List<Ruling> horizontals = UtilsForBenchmarking.gridHorizontals(99, 99, 8f);
+        final List<Ruling> verticals = UtilsForBenchmarking.gridVerticals(99, 99, 8f);
+
+        UtilsForBenchmarking.time("findIntersections, 100x100 grid", new Benchmark() {
+            @Override
+            public void run() {
+                Ruling.findIntersections(horizontals, verticals);
+            }
+        });
+
+        // the same amount of rulings, as 10 stacked tables of 10x100 cells
+        final List<Ruling> stackedHorizontals = new ArrayList<Ruling>();
+        final List<Ruling> stackedVerticals = new ArrayList<Ruling>();
+        for (int t = 0; t < 10; t++) {
+            float offset = t * 100f;
+            for (Ruling h : UtilsForBenchmarking.gridHorizontals(9, 99, 8f)) {
+                stackedHorizontals.add(new Ruling(h.getTop() + offset, h.getLeft(), h.getWidth(), 0));
+            }
+            for (Ruling v : UtilsForBenchmarking.gridVerticals(9, 99, 8f)) {
+                stackedVerticals.add(new Ruling(v.getTop() + offset, v.getLeft(), 0, v.getHeight()));
+            }
+        }
+
+        UtilsForBenchmarking.time("findIntersections, 10 stacked 10x100 grids", new Benchmark() {
+            @Override
+            public void run() {
+                Ruling.findIntersections(stackedHorizontals, stackedVerticals);
+            }
+        });
+
+        UtilsForBenchmarking.time("RulingIntersections, 100x100 grid", new Benchmark() {
+            @Override
+            public void run() {
+                new RulingIntersections(horizontals, verticals);
+            }
+        });
+
+        UtilsForBenchmarking.time("findCells, 100x100 grid", new Benchmark() {
+            @Override
+            public void run() {
+                SpreadsheetExtractionAlgorithm.findCells(horizontals, verticals);
+            }
+        });
+
+        // every ruling of the grid split into 10 segments, to be collapsed back.
+        // collapseOrientedRulings sorts and modifies its input, so each run works on copies
+        final List<Ruling> segments = new ArrayList<Ruling>();
+        for (Ruling h : horizontals) {
+            for (int k = 0; k < 10; k++) {
+                segments.add(new Ruling(h.getTop(), h.getLeft() + k * h.getWidth() / 10, h.getWidth() / 10, 0));
+            }
+        }
+        UtilsForBenchmarking.time("collapseOrientedRulings, 100x100 grid in segments", new Benchmark() {
+            @Override
+            public void run() {
+                List<Ruling> copies = new ArrayList<Ruling>(segments.size());
+                for (Ruling r : segments) {
+                    copies.add((Ruling) r.clone());
+                }
+                Ruling.collapseOrientedRulings(copies);
+            }
+        });
+
+        // the grid, with every end point jittered by less than the snapping threshold
+        final List<Ruling> jittered = new ArrayList<Ruling>();
+        Random random = new Random(0);
+        for (Ruling r : UtilsForBenchmarking.gridHorizontals(99, 99, 8f)) {
+            jittered.add(new Ruling(r.getTop() + random.nextFloat(), r.getLeft() + random.nextFloat(), r.getWidth(), 0));
+        }
+        for (Ruling r : UtilsForBenchmarking.gridVerticals(99, 99, 8f)) {
+            jittered.add(new Ruling(r.getTop() + random.nextFloat(), r.getLeft() + random.nextFloat(), 0, r.getHeight()));
+        }
+        UtilsForBenchmarking.time("snapPoints, 100x100 grid", new Benchmark() {
+            @Override
+            public void run() {
+                List<Ruling> copies = new ArrayList<Ruling>(jittered.size());
+                for (Ruling r : jittered) {
+                    copies.add((Ruling) r.clone());
+                }
+                Utils.snapPoints(copies, 2f, 2f);
+            }
+        });
+
+        // a 50x20 grid of dashed borders: 2pt dashes with 1pt gaps, about 13000 segments
+        final List<Ruling> dashes = UtilsForBenchmarking.dashed(UtilsForBenchmarking.gridHorizontals(50, 20, 12f), 2f, 1f);
+        dashes.addAll(UtilsForBenchmarking.dashed(UtilsForBenchmarking.gridVerticals(50, 20, 12f), 2f, 1f));
+        UtilsForBenchmarking.time("Page.getRulings, dashed 50x20 grid", new Benchmark() {
+            @Override
+            public void run() {
+                List<Ruling> copies = new ArrayList<Ruling>(dashes.size());
+                for (Ruling r : dashes) {
+                    copies.add((Ruling) r.clone());
+                }
+                new Page(0, 0, 612, 792, 0, 1, null, new ArrayList<TextElement>(), copies).getRulings();
+            }
+        });
+    }
+}
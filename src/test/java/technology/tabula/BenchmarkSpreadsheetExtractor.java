@@ -0,0 +1,99 @@
+package technology.tabula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import technology.tabula.UtilsForBenchmarking.Benchmark;
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+
+public class BenchmarkSpreadsheetExtractor {
+
+    public static void main(String[] args) {
+        // 10 separate tables of 20x50 cells
+        final List<Cell> cells = new ArrayList<Cell>();
+        for (int t = 0; t < 10; t++) {
+            float offset = t * 200f;
+            for (int i = 0; i < 20; i++) {
+                for (int j = 0; j < 50; j++) {
+                    cells.add(new Cell(offset + i * 8f, j * 8f, 8f, 8f));
+                }
+            }
+        }
+
+        UtilsForBenchmarking.time("findSpreadsheetsFromCells, 10 tables of 20x50", new Benchmark() {
+            @Override
+            public void run() {
+                new SpreadsheetExtractionAlgorithm().findSpreadsheetsFromCells(cells);
+            }
+        });
+
+        UtilsForBenchmarking.time("groupCellsIntoSpreadsheets, 10 tables of 20x50", new Benchmark() {
+            @Override
+            public void run() {
+                SpreadsheetExtractionAlgorithm.groupCellsIntoSpreadsheets(cells);
+            }
+        });
+
+        // 200x20 grid, with a word of 5 glyphs in each cell
+        final List<Cell> gridCells = new ArrayList<Cell>();
+        final List<TextElement> texts = new ArrayList<TextElement>();
+        final RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<TextElement>();
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 20; j++) {
+                gridCells.add(new Cell(i * 12f, j * 40f, 40f, 12f));
+                for (int k = 0; k < 5; k++) {
+                    TextElement te = new TextElement(i * 12f + 2f, j * 40f + 2f + k * 5f, 5f, 8f, null, 8f, "a", 2f);
+                    texts.add(te);
+                    index.add(te);
+                }
+            }
+        }
+
+        UtilsForBenchmarking.time("spatial index query per cell, 200x20 grid", new Benchmark() {
+            @Override
+            public void run() {
+                for (Cell c : gridCells) {
+                    index.contains(c);
+                }
+            }
+        });
+
+        UtilsForBenchmarking.time("assignTextToCells, 200x20 grid", new Benchmark() {
+            @Override
+            public void run() {
+                SpreadsheetExtractionAlgorithm.assignTextToCells(texts, gridCells);
+            }
+        });
+
+        final Rectangle gridArea = Utils.bounds(gridCells);
+        UtilsForBenchmarking.time("TableWithRulingLines, 200x20 grid", new Benchmark() {
+            @Override
+            public void run() {
+                new TableWithRulingLines(gridArea, null, new ArrayList<Cell>(gridCells),
+                        new ArrayList<Ruling>(), new ArrayList<Ruling>());
+            }
+        });
+
+        // same grid, with cells spanning two rows in the first column, so that
+        // every other row doesn't start at the left of the table
+        final List<Cell> spanningCells = new ArrayList<Cell>();
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 20; j++) {
+                if (j > 0) {
+                    spanningCells.add(new Cell(i * 12f, j * 40f, 40f, 12f));
+                }
+                else if (i % 2 == 0) {
+                    spanningCells.add(new Cell(i * 12f, 0f, 40f, 24f));
+                }
+            }
+        }
+        final Rectangle spanningArea = Utils.bounds(spanningCells);
+        UtilsForBenchmarking.time("TableWithRulingLines, 200x20 grid, spanning rows", new Benchmark() {
+            @Override
+            public void run() {
+                new TableWithRulingLines(spanningArea, null, new ArrayList<Cell>(spanningCells),
+                        new ArrayList<Ruling>(), new ArrayList<Ruling>());
+            }
+        });
+    }
+}
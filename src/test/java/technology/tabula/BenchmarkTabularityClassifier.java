@@ -0,0 +1,70 @@
+package technology.tabula;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+import technology.tabula.extractors.TabularityClassifier;
+
+/**
+ * Compares TabularityClassifier.isTabular with SpreadsheetExtractionAlgorithm.isPageTabular
+ * on every page of the test PDFs: prints the decision of each one, their time, and how
+ * often they agree
+ */
+public class BenchmarkTabularityClassifier {
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "src/test/resources/technology/tabula");
+        File[] pdfs = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".pdf") && !name.equals("encrypted.pdf");
+            }
+        });
+        Arrays.sort(pdfs);
+
+        int pages = 0, agreements = 0;
+        long extractionNanos = 0, classifierNanos = 0;
+        for (File pdf : pdfs) {
+            PDDocument document = PDDocument.load(pdf.getPath());
+            ObjectExtractor oe = new ObjectExtractor(document);
+            try {
+                PageIterator iter = oe.extract();
+                while (iter.hasNext()) {
+                    Page page = iter.next();
+                    if (page.getText().isEmpty()) {
+                        continue;
+                    }
+
+                    long start = System.nanoTime();
+                    boolean expected = SpreadsheetExtractionAlgorithm.isPageTabular(page);
+                    long middle = System.nanoTime();
+                    boolean actual = TabularityClassifier.isTabular(page);
+                    long end = System.nanoTime();
+
+                    extractionNanos += middle - start;
+                    classifierNanos += end - middle;
+                    pages++;
+                    if (expected == actual) {
+                        agreements++;
+                    }
+                    System.out.println(String.format("%-40s %3d  extraction: %-5s %8.3f ms  classifier: %-5s %8.3f ms%s",
+                            pdf.getName(), page.getPageNumber(),
+                            expected, (middle - start) / 1e6,
+                            actual, (end - middle) / 1e6,
+                            expected == actual ? "" : "  DISAGREE"));
+                }
+            } finally {
+                oe.close();
+            }
+        }
+
+        System.out.println(String.format("%d pages, %d agreements (%.1f%%)", pages, agreements, 100.0 * agreements / pages));
+        System.out.println(String.format("isPageTabular: %.3f ms total, TabularityClassifier.isTabular: %.3f ms total",
+                extractionNanos / 1e6, classifierNanos / 1e6));
+    }
+}
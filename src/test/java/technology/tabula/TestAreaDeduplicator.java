@@ -0,0 +1,89 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestAreaDeduplicator {
+
+    @Test
+    public void testKeepsContainingArea() {
+        Rectangle inner = new Rectangle(20, 20, 50, 50);
+        Rectangle outer = new Rectangle(10, 10, 100, 100);
+        Rectangle apart = new Rectangle(300, 300, 50, 50);
+
+        List<Rectangle> rv = AreaDeduplicator.deduplicate(Arrays.asList(inner, outer, apart), 0.9f);
+        assertEquals(2, rv.size());
+        assertSame(outer, rv.get(0));
+        assertSame(apart, rv.get(1));
+    }
+
+    @Test
+    public void testMergesMostlyOverlappingAreas() {
+        Rectangle a = new Rectangle(10, 10, 100, 100);
+        Rectangle b = new Rectangle(11, 10, 100, 100);
+        Rectangle c = new Rectangle(60, 10, 100, 100);
+
+        List<Rectangle> rv = AreaDeduplicator.deduplicate(Arrays.asList(a, b, c), 0.9f);
+        assertEquals(2, rv.size());
+        // a and b are the same size, so the first one is kept
+        assertSame(a, rv.get(0));
+        assertSame(c, rv.get(1));
+    }
+
+    @Test
+    public void testDoesNotChainContainmentAndOverlap() {
+        // a contains b, b overlaps c enough, but a and c are far from the same
+        Rectangle a = new Rectangle(0, 0, 100, 100);
+        Rectangle b = new Rectangle(0, 80, 20, 100);
+        Rectangle c = new Rectangle(0, 81, 20, 100);
+
+        assertEquals(Arrays.asList(a, c), AreaDeduplicator.deduplicate(Arrays.asList(a, b, c), 0.9f));
+        assertEquals(Arrays.asList(c, a), AreaDeduplicator.deduplicate(Arrays.asList(c, b, a), 0.9f));
+    }
+
+    @Test
+    public void testKeepsBothTablesContainingASliver() {
+        // two tables that overlap a little, and a sliver in the overlap, inside both of them
+        Rectangle left = new Rectangle(0, 0, 100, 100);
+        Rectangle right = new Rectangle(0, 90, 100, 100);
+        Rectangle sliver = new Rectangle(10, 92, 5, 50);
+
+        assertEquals(Arrays.asList(left, right), AreaDeduplicator.deduplicate(Arrays.asList(left, sliver, right), 0.9f));
+        assertEquals(Arrays.asList(right, left), AreaDeduplicator.deduplicate(Arrays.asList(sliver, right, left), 0.9f));
+    }
+
+    @Test
+    public void testMergesEqualAreas() {
+        Rectangle a = new Rectangle(10, 10, 100, 100);
+        Rectangle b = new Rectangle(10, 10, 100, 100);
+
+        List<Rectangle> rv = AreaDeduplicator.deduplicate(Arrays.asList(a, b), 0.9f);
+        assertEquals(1, rv.size());
+        assertSame(a, rv.get(0));
+    }
+
+    @Test
+    public void testDoesNotDependOnOrder() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            List<Rectangle> areas = new ArrayList<Rectangle>();
+            for (int i = 0; i < 30; i++) {
+                areas.add(new Rectangle(random.nextInt(500), random.nextInt(500), 10 + random.nextInt(100), 10 + random.nextInt(100)));
+            }
+            List<Rectangle> shuffled = new ArrayList<Rectangle>(areas);
+            Collections.shuffle(shuffled, random);
+
+            assertEquals(new HashSet<Rectangle>(AreaDeduplicator.deduplicate(areas, 0.9f)),
+                         new HashSet<Rectangle>(AreaDeduplicator.deduplicate(shuffled, 0.9f)));
+        }
+    }
+}
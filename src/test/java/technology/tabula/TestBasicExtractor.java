@@ -1971,4 +1971,30 @@ public class TestBasicExtractor {
         assertEquals(expectedCsv, sb.toString());
     }
 
+    @Test
+    public void testProjectionProfileColumnsOfLongPage() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<TextElement>();
+        for (int i = 0; i < 60; i++) {
+            // three columns of words of 4 to 6 glyphs, at 100, 200 and 300
+            for (int j = 0; j < 3; j++) {
+                for (int k = 0; k < 4 + (i + j) % 3; k++) {
+                    TextElement te = new TextElement(100 + i * 10, 100 + j * 100 + k * 5, 5f, 8f, null, 8f,
+                            String.valueOf((char) ('a' + k)), 5f);
+                    texts.add(te);
+                    index.add(te);
+                }
+            }
+        }
+        Page page = new Page(0, 0, 612, 792, 0, 1, null, texts, new ArrayList<Ruling>(), 5f, 8f, index);
+
+        BasicExtractionAlgorithm bea = new BasicExtractionAlgorithm();
+        bea.setProjectionProfileMinimumLines(50);
+        Table table = bea.extract(page).get(0);
+        assertEquals(60, table.getRows().size());
+        assertEquals(3, table.getCols().size());
+        assertEquals("abcde", table.getCell(1, 0).getText());
+        assertEquals("abcdef", table.getCell(1, 1).getText());
+        assertEquals("abcd", table.getCell(1, 2).getText());
+    }
 }
@@ -0,0 +1,117 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import technology.tabula.detectors.CachingDetectionAlgorithm;
+import technology.tabula.detectors.DetectionAlgorithm;
+
+public class TestCachingDetectionAlgorithm {
+
+    // finds one area per text element, and counts how often it's run
+    private static final class CountingDetector implements DetectionAlgorithm {
+        int runs;
+
+        @Override
+        public List<Rectangle> detect(Page page) {
+            runs++;
+            List<Rectangle> rv = new ArrayList<Rectangle>();
+            for (TextElement te : page.getText()) {
+                rv.add(new Rectangle(te.getTop() - 0.1f, te.getLeft() / 3f, 100.25f, 20));
+            }
+            return rv;
+        }
+    }
+
+    private static Page makePage(String... words) {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < words.length; i++) {
+            texts.add(new TextElement(100 + i * 12, 100, 30f, 8f, null, 8f, words[i], 2.5f));
+        }
+        return UtilsForTesting.makePage(texts);
+    }
+
+    private static File makeDirectory() throws IOException {
+        File directory = File.createTempFile("tabula", "cache");
+        directory.delete();
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testReusesAreasOfSamePage() throws IOException {
+        File directory = makeDirectory();
+        try {
+            CountingDetector detector = new CountingDetector();
+            List<Rectangle> expected = detector.detect(makePage("a", "b"));
+            detector.runs = 0;
+
+            assertEquals(expected, new CachingDetectionAlgorithm(detector, "1", directory).detect(makePage("a", "b")));
+            // as in another run of tabula
+            assertEquals(expected, new CachingDetectionAlgorithm(detector, "1", directory).detect(makePage("a", "b")));
+            assertEquals(1, detector.runs);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testDoesNotReuseAreasOfOtherPagesOrVersions() throws IOException {
+        File directory = makeDirectory();
+        try {
+            CountingDetector detector = new CountingDetector();
+            CachingDetectionAlgorithm cache = new CachingDetectionAlgorithm(detector, "1", directory);
+
+            cache.detect(makePage("a", "b"));
+            assertEquals(1, cache.detect(makePage("a")).size());
+            assertEquals(2, detector.runs);
+
+            new CachingDetectionAlgorithm(detector, "2", directory).detect(makePage("a", "b"));
+            assertEquals(3, detector.runs);
+
+            // the same text in another area of the page
+            Page page = makePage("a", "b");
+            cache.detect(new Page(0, 0, 300, 300, 0, 1, null, page.getText(), page.getUnprocessedRulings()));
+            assertEquals(4, detector.runs);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testIgnoresUnreadableCacheFiles() throws IOException {
+        File directory = makeDirectory();
+        try {
+            CountingDetector detector = new CountingDetector();
+            CachingDetectionAlgorithm cache = new CachingDetectionAlgorithm(detector, "1", directory);
+            List<Rectangle> expected = cache.detect(makePage("a", "b"));
+
+            for (File file : directory.listFiles()) {
+                FileWriter writer = new FileWriter(file);
+                writer.write("1,2,three\n");
+                writer.close();
+            }
+            assertEquals(expected, cache.detect(makePage("a", "b")));
+            assertEquals(2, detector.runs);
+            assertEquals(1, directory.list().length);
+        } finally {
+            delete(directory);
+        }
+    }
+}
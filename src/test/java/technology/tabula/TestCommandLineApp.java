@@ -26,6 +26,25 @@ public class TestCommandLineApp {
 		return stringBuilder.toString();
 	}
 
+	@Test
+	public void testHorizontalAlignmentPerPage() throws ParseException {
+		// mednine.pdf's pages aren't aligned the same way: only the second one is left aligned on its own
+		String pdf = "src/test/resources/technology/tabula/mednine.pdf";
+		StringBuilder perPage = new StringBuilder();
+		for (int page = 1; page <= 4; page++) {
+			perPage.append(this.csvFromCommandLineArgs(new String[] {
+					pdf, "-p", String.valueOf(page), "-n", "-ha"
+			}));
+		}
+
+		assertEquals(perPage.toString(), this.csvFromCommandLineArgs(new String[] {
+				pdf, "-p", "1-4", "-n", "-ha", "-hp"
+		}));
+		assertFalse(perPage.toString().equals(this.csvFromCommandLineArgs(new String[] {
+				pdf, "-p", "1-4", "-n", "-ha"
+		})));
+	}
+
 	@Test
 	public void testExtractSpreadsheetWithArea() throws ParseException, IOException {
 
@@ -67,14 +86,16 @@ public class TestCommandLineApp {
 	public void testExtractSpreadsheetWithAreaAndNewFile() throws ParseException, IOException {
 
 		String expectedCsv = UtilsForTesting.loadCsv("src/test/resources/technology/tabula/csv/spreadsheet_no_bounding_frame.csv");
+		Path outputFile = Files.createTempFile("tabula-java-output-test", ".csv");
+		outputFile.toFile().deleteOnExit();
 
-		 this.csvFromCommandLineArgs(new String[] {
-					"src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
-					"-p", "1", "-a",
-					"150.56,58.9,654.7,536.12", "-f",
-					"CSV", "-o", "outputFile"
-			});
-		//assertEquals(expectedCsv,);
+		this.csvFromCommandLineArgs(new String[] {
+				"src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf",
+				"-p", "1", "-a",
+				"150.56,58.9,654.7,536.12", "-f",
+				"CSV", "-o", outputFile.toString()
+		});
+		assertArrayEquals(expectedCsv.getBytes(), Files.readAllBytes(outputFile));
 	}
 
 
@@ -0,0 +1,103 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import technology.tabula.detectors.NurminenDetectionAlgorithm;
+import technology.tabula.detectors.NurminenDetectionAlgorithm.EdgeSource;
+
+public class TestNurminenDetectionAlgorithm {
+
+    private static final Rectangle GRID = new Rectangle(100, 100, 400, 120);
+
+    // a page without a PDPage (so it can't be rendered) with a ruled grid of 6 x 4 words in GRID
+    private static Page makeRuledPage(List<Rectangle> imageAreas) {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        for (int i = 0; i <= 6; i++) {
+            rulings.add(new Ruling(new Point2D.Float(100, 100 + i * 20), new Point2D.Float(500, 100 + i * 20)));
+        }
+        for (int j = 0; j <= 4; j++) {
+            rulings.add(new Ruling(new Point2D.Float(100 + j * 100, 100), new Point2D.Float(100 + j * 100, 220)));
+        }
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 4; j++) {
+                for (int k = 0; k < 3; k++) {
+                    texts.add(new TextElement(105 + i * 20, 110 + j * 100 + k * 5f, 5f, 8f, null, 8f,
+                            String.valueOf((char) ('a' + k)), 2.5f));
+                }
+            }
+        }
+        return UtilsForTesting.makePage(texts, rulings, imageAreas);
+    }
+
+    @Test
+    public void testFindsRuledTableWithoutRendering() {
+        NurminenDetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+        detector.setEdgeSource(EdgeSource.VECTOR);
+
+        List<Rectangle> tables = detector.detect(makeRuledPage(new ArrayList<Rectangle>()));
+        assertEquals(1, tables.size());
+        assertTrue(tables.get(0).overlapRatio(GRID) >= 0.9f);
+    }
+
+    @Test
+    public void testDoesNotChangePageRulings() {
+        NurminenDetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+        detector.setEdgeSource(EdgeSource.VECTOR);
+        Page page = makeRuledPage(new ArrayList<Rectangle>());
+        List<Ruling> rulings = new ArrayList<Ruling>(page.getRulings());
+
+        detector.detect(page);
+        assertEquals(rulings, page.getRulings());
+    }
+
+    @Test
+    public void testAutomaticIgnoresSmallImages() {
+        NurminenDetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+        detector.setEdgeSource(EdgeSource.AUTOMATIC);
+
+        // a logo
+        List<Rectangle> tables = detector.detect(makeRuledPage(Arrays.asList(new Rectangle(20, 20, 60, 40))));
+        assertEquals(1, tables.size());
+    }
+
+    @Test
+    public void testAutomaticRendersPagesWithLargeImages() {
+        NurminenDetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+        detector.setEdgeSource(EdgeSource.AUTOMATIC);
+
+        // a scan of the whole page: the detector tries to render the page, which it can't
+        List<Rectangle> tables = detector.detect(makeRuledPage(Arrays.asList(new Rectangle(0, 0, 612, 792))));
+        assertEquals(0, tables.size());
+    }
+
+    @Test
+    public void testDetectorVersionTellsSettingsApart() {
+        NurminenDetectionAlgorithm detector = new NurminenDetectionAlgorithm();
+        String version = detector.getDetectorVersion();
+        assertTrue(version.contains(String.valueOf(NurminenDetectionAlgorithm.VERSION)));
+        assertEquals(version, new NurminenDetectionAlgorithm().getDetectorVersion());
+
+        detector.setResolution(72);
+        assertFalse(version.equals(detector.getDetectorVersion()));
+        detector = new NurminenDetectionAlgorithm();
+        detector.setImageType(BufferedImage.TYPE_BYTE_BINARY);
+        assertFalse(version.equals(detector.getDetectorVersion()));
+        detector = new NurminenDetectionAlgorithm();
+        detector.setEdgeSource(EdgeSource.VECTOR);
+        assertFalse(version.equals(detector.getDetectorVersion()));
+        detector = new NurminenDetectionAlgorithm();
+        detector.setCoarseToFine(true);
+        assertFalse(version.equals(detector.getDetectorVersion()));
+    }
+}
@@ -0,0 +1,83 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestOrientedRulings {
+
+    @Test
+    public void testOrientationOf() {
+        assertEquals(OrientedRulings.HORIZONTAL, OrientedRulings.orientationOf(new Ruling(10, 0, 100, 0)));
+        assertEquals(OrientedRulings.VERTICAL, OrientedRulings.orientationOf(new Ruling(0, 10, 0, 100)));
+        assertEquals(0, OrientedRulings.orientationOf(new Ruling(0, 0, 100, 100)));
+        assertEquals(0, OrientedRulings.orientationOf(new Ruling(10, 10, 0, 0)));
+        assertEquals(OrientedRulings.HORIZONTAL | OrientedRulings.VERTICAL,
+                OrientedRulings.orientationOf(new Ruling(10, 10, 0.001f, 0.001f)));
+    }
+
+    @Test
+    public void testSplitsByOrientation() {
+        List<Ruling> rulings = Arrays.asList(
+                new Ruling(new Point2D.Float(0, 10), new Point2D.Float(100, 10)),
+                new Ruling(new Point2D.Float(20, 0), new Point2D.Float(20, 100)),
+                new Ruling(new Point2D.Float(0, 0), new Point2D.Float(50, 50)),
+                new Ruling(new Point2D.Float(100, 30), new Point2D.Float(0, 30)));
+
+        OrientedRulings horizontals = new OrientedRulings(rulings, false);
+        assertEquals(2, horizontals.size());
+        assertSame(rulings.get(0), horizontals.getRuling(0));
+        assertEquals(3, horizontals.getIndex(1));
+        assertEquals(30f, horizontals.getPosition(1), 0);
+        assertEquals(100f, horizontals.getStart(1), 0);
+        assertEquals(0f, horizontals.getEnd(1), 0);
+        // expanded as Ruling.expand does, so a right to left ruling shrinks
+        assertEquals(2f, horizontals.getExpandedMin(1, 2), 0);
+        assertEquals(98f, horizontals.getExpandedMax(1, 2), 0);
+        assertEquals(-2f, horizontals.getExpandedMin(0, 2), 0);
+        assertEquals(102f, horizontals.getExpandedMax(0, 2), 0);
+
+        OrientedRulings verticals = new OrientedRulings(rulings, true);
+        assertEquals(1, verticals.size());
+        assertEquals(1, verticals.getIndex(0));
+        assertEquals(20f, verticals.getPosition(0), 0);
+    }
+
+    @Test
+    public void testSortMatchesRulingComparator() {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            List<Ruling> rulings = new ArrayList<Ruling>();
+            for (int i = 0; i < 200; i++) {
+                // few distinct values, so there are plenty of ties
+                float y = random.nextInt(10) * 10f, x1 = random.nextInt(5) * 20f;
+                rulings.add(new Ruling(new Point2D.Float(x1, y), new Point2D.Float(x1 + 10 + random.nextInt(50), y)));
+            }
+
+            List<Ruling> expected = new ArrayList<Ruling>(rulings);
+            Collections.sort(expected, new Comparator<Ruling>() {
+                @Override
+                public int compare(Ruling a, Ruling b) {
+                    final float diff = a.getPosition() - b.getPosition();
+                    return Float.compare(diff == 0 ? a.getStart() - b.getStart() : diff, 0f);
+                }
+            });
+
+            OrientedRulings oriented = new OrientedRulings(rulings, false);
+            int[] order = oriented.sortedByPositionAndStart();
+            assertEquals(expected.size(), order.length);
+            for (int k = 0; k < order.length; k++) {
+                assertSame(expected.get(k), oriented.getRuling(order[k]));
+            }
+        }
+    }
+}
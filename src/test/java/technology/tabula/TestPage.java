@@ -0,0 +1,75 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestPage {
+
+    private static Page makePage() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < 10; i++) {
+            // wider and taller glyphs further down the page
+            texts.add(new TextElement(100 + i * 20, 100, 5f + i, 8f + i, null, 8f, "a", 5f));
+        }
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        rulings.add(new Ruling(new Point2D.Float(50, 150), new Point2D.Float(500, 150)));
+        rulings.add(new Ruling(new Point2D.Float(300, 50), new Point2D.Float(300, 700)));
+        List<Rectangle> images = Arrays.asList(new Rectangle(400, 400, 100, 100));
+        return UtilsForTesting.makePage(texts, rulings, images);
+    }
+
+    @Test
+    public void testGetArea() {
+        Page page = makePage();
+        List<Ruling> pageRulings = page.getRulings();
+
+        Page area = page.getArea(new Rectangle(130, 80, 400, 200));
+        assertEquals(130f, area.getTop(), 0);
+        assertEquals(80f, area.getLeft(), 0);
+        assertEquals(480f, area.getRight(), 0);
+        assertEquals(330f, area.getBottom(), 0);
+        assertEquals(page.getText(new Rectangle(130, 80, 400, 200)), area.getText());
+        assertEquals(8, area.getText().size());
+        assertEquals(7f, area.getMinCharWidth(), 0);
+        assertEquals(10f, area.getMinCharHeight(), 0);
+
+        // the page's rulings cropped to the area, and the four edges of the area
+        assertEquals(6, area.getUnprocessedRulings().size());
+        assertEquals(3, area.getHorizontalRulings().size());
+        assertEquals(3, area.getVerticalRulings().size());
+        assertEquals(80f, area.getHorizontalRulings().get(0).getLeft(), 0);
+        assertEquals(480f, area.getHorizontalRulings().get(0).getRight(), 0);
+        assertSame(pageRulings, page.getRulings());
+        assertEquals(2, page.getRulings().size());
+
+        assertEquals(0, area.getImageAreas().size());
+        assertEquals(1, page.getArea(new Rectangle(350, 350, 100, 100)).getImageAreas().size());
+    }
+
+    @Test
+    public void testGetAreaOfArea() {
+        Page page = makePage();
+        Page area = page.getArea(new Rectangle(130, 80, 400, 200)).getArea(new Rectangle(150, 80, 400, 60));
+        assertEquals(2, area.getText().size());
+        // the first area's rulings are cropped, and overlap the edges of the second
+        assertEquals(8, area.getUnprocessedRulings().size());
+        assertEquals(2, area.getHorizontalRulings().size());
+        assertEquals(3, area.getVerticalRulings().size());
+    }
+
+    @Test
+    public void testGetAreaWithoutText() {
+        Page area = makePage().getArea(new Rectangle(500, 400, 50, 50));
+        assertTrue(area.getText().isEmpty());
+        assertEquals(0f, area.getMinCharWidth(), 0);
+        assertEquals(4, area.getRulings().size());
+    }
+}
@@ -0,0 +1,148 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import technology.tabula.extractors.PageTriage;
+import technology.tabula.extractors.PageTriage.Decision;
+
+public class TestPageTriage {
+
+    // a word of n glyphs at (top, left), followed by a space
+    private static void addWord(List<TextElement> texts, float top, float left, int n) {
+        for (int k = 0; k <= n; k++) {
+            String s = k == n ? " " : String.valueOf((char) ('a' + k));
+            texts.add(new TextElement(top, left + k * 5f, 5f, 8f, null, 8f, s, 5f));
+        }
+    }
+
+    @Test
+    public void testBlankPageHasNoTable() {
+        PageTriage triage = PageTriage.triage(UtilsForTesting.makePage(new ArrayList<TextElement>(), new ArrayList<Ruling>(), new ArrayList<Rectangle>()));
+        assertEquals(Decision.NO_TABLE, triage.getDecision());
+        assertFalse(triage.isImageOnly());
+    }
+
+    @Test
+    public void testImageOnlyPageHasNoTable() {
+        PageTriage triage = PageTriage.triage(UtilsForTesting.makePage(new ArrayList<TextElement>(), new ArrayList<Ruling>(),
+                Arrays.asList(new Rectangle(0, 0, 612, 792))));
+        assertEquals(Decision.NO_TABLE, triage.getDecision());
+        assertTrue(triage.isImageOnly());
+        assertEquals(1f, triage.getImageCoverage(), 1e-6);
+    }
+
+    @Test
+    public void testRuledGrid() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        for (int i = 0; i <= 6; i++) {
+            rulings.add(new Ruling(new Point2D.Float(100, 100 + i * 20), new Point2D.Float(500, 100 + i * 20)));
+        }
+        for (int j = 0; j <= 4; j++) {
+            rulings.add(new Ruling(new Point2D.Float(100 + j * 100, 100), new Point2D.Float(100 + j * 100, 220)));
+        }
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 4; j++) {
+                addWord(texts, 105 + i * 20, 110 + j * 100, 3);
+            }
+        }
+        PageTriage triage = PageTriage.triage(UtilsForTesting.makePage(texts, rulings, new ArrayList<Rectangle>()));
+        assertEquals(Decision.RULED, triage.getDecision());
+        assertEquals(35, triage.getRulingIntersectionCount());
+        assertEquals(6 * 4 * 3, triage.getGlyphCount());
+    }
+
+    @Test
+    public void testAlignedColumnsWithoutRulings() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < 8; i++) {
+            addWord(texts, 100 + i * 12, 100, 6);
+            // right aligned numbers
+            addWord(texts, 100 + i * 12, 300 - (i % 4) * 5, 2 + i % 4);
+        }
+        PageTriage triage = PageTriage.triage(UtilsForTesting.makePage(texts, new ArrayList<Ruling>(), new ArrayList<Rectangle>()));
+        assertEquals(Decision.BORDERLESS, triage.getDecision());
+        assertEquals(8, triage.getTextLineCount());
+        assertEquals(8, triage.getMultiChunkLineCount());
+        // the lefts of the first column, the rights of both
+        assertEquals(3, triage.getAlignedEdgeCount());
+    }
+
+    @Test
+    public void testRunningTextHasNoTable() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 8; j++) {
+                addWord(texts, 100 + i * 12, 72 + j * 30 + (i % 4), 4);
+            }
+        }
+        PageTriage triage = PageTriage.triage(UtilsForTesting.makePage(texts, new ArrayList<Ruling>(), new ArrayList<Rectangle>()));
+        assertEquals(Decision.NO_TABLE, triage.getDecision());
+        assertEquals(20, triage.getTextLineCount());
+        assertEquals(0, triage.getMultiChunkLineCount());
+    }
+
+    @Test
+    public void testIcdar2013() throws Exception {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        int tablePages = 0, otherPages = 0, skippedOtherPages = 0;
+        for (String regionCode : new String[] { "eu", "us" }) {
+            File dir = new File("src/test/resources/technology/tabula/icdar2013-dataset/competition-dataset-" + regionCode);
+            File[] pdfs = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(".pdf");
+                }
+            });
+            for (File pdf : pdfs) {
+                // pages with a table in the ground truth
+                Set<Integer> tables = new HashSet<Integer>();
+                NodeList regions = builder.parse(pdf.getPath().replace(".pdf", "-reg.xml")).getElementsByTagName("region");
+                for (int i = 0; i < regions.getLength(); i++) {
+                    tables.add(Integer.decode(((Element) regions.item(i)).getAttribute("page")));
+                }
+
+                ObjectExtractor oe = new ObjectExtractor(PDDocument.load(pdf));
+                try {
+                    PageIterator pages = oe.extract();
+                    while (pages.hasNext()) {
+                        Page page = pages.next();
+                        boolean skipped = PageTriage.triage(page).getDecision() == Decision.NO_TABLE;
+                        if (tables.contains(page.getPageNumber())) {
+                            tablePages++;
+                            assertFalse(pdf.getName() + " page " + page.getPageNumber() + " has a table", skipped);
+                        }
+                        else {
+                            otherPages++;
+                            skippedOtherPages += skipped ? 1 : 0;
+                        }
+                    }
+                } finally {
+                    oe.close();
+                }
+            }
+        }
+        assertEquals(128, tablePages);
+        assertEquals(110, otherPages);
+        assertEquals(40, skippedOtherPages);
+    }
+}
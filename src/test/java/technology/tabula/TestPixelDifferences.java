@@ -0,0 +1,46 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import technology.tabula.detectors.PixelDifferences;
+
+public class TestPixelDifferences {
+
+    @Test
+    public void testFindsDifferencesAboveThreshold() {
+        byte[] data = new byte[32];
+        // second row is the first one, with a few pixels changed
+        data[16 + 3] = (byte) 20;
+        data[16 + 9] = (byte) 30;
+        data[16 + 12] = (byte) 200;
+        data[12] = (byte) 210;
+        PixelDifferences differences = new PixelDifferences(data, 25);
+        assertEquals(9, differences.next(16, 0, 0, 16));
+        assertEquals(16, differences.next(16, 0, 10, 16));
+        assertEquals(3, new PixelDifferences(data, 19).next(16, 0, 0, 16));
+    }
+
+    @Test
+    public void testMatchesPixelByPixelComparison() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            byte[] data = new byte[2 * 100];
+            for (int i = 0; i < 100; i++) {
+                // mostly identical rows, as on a rendered page
+                data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 255);
+                data[100 + i] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : data[i];
+            }
+            int threshold = round < 100 ? random.nextInt(256) : 25;
+            PixelDifferences wordwise = new PixelDifferences(data, threshold);
+            PixelDifferences scalar = new PixelDifferences(data, threshold, false);
+            for (int from = 0; from < 100; from += 1 + random.nextInt(5)) {
+                assertEquals(scalar.next(100, 0, from, 100), wordwise.next(100, 0, from, 100));
+                assertEquals(scalar.next(1, 0, from, 99), wordwise.next(1, 0, from, 99));
+            }
+        }
+    }
+}
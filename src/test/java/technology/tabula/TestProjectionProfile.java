@@ -89,6 +89,43 @@ public class TestProjectionProfile {
 
 	}
 
+	@Test
+	public void testProjectionOfOverlappingElements() {
+		List<Rectangle> rectangles = new ArrayList<Rectangle>();
+		rectangles.add(new Rectangle(0, 0.1f, 0.3f, 1));
+		rectangles.add(new Rectangle(0, 0.2f, 0.3f, 1));
+		ProjectionProfile profile = new ProjectionProfile(page, rectangles, 0.2f, 0.2f);
+
+		// the heights over each tenth of a point are 0, 1, 2, 2, 1, 0..., and smoothing
+		// divides the sums of each one and the one before by 2
+		assertArrayEquals(new float[] { 0, 0, 1, 2, 1, 0, 0, 0, 0, 0 }, profile.getHorizontalProjection(), 0);
+	}
+
+	@Test
+	public void testFindColumnPositions() {
+		List<TextElement> texts = new ArrayList<TextElement>();
+		RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<TextElement>();
+		for (int i = 0; i < 20; i++) {
+			// three columns of words, at 100, 200 and 300
+			for (int j = 0; j < 3; j++) {
+				for (int k = 0; k < 4 + (i + j) % 3; k++) {
+					TextElement te = new TextElement(100 + i * 12, 100 + j * 100 + k * 5, 5f, 8f, PDType1Font.HELVETICA, 8f, "a", 5f);
+					texts.add(te);
+					index.add(te);
+				}
+			}
+		}
+		Page textPage = new Page(0, 0, 612, 792, 0, 1, null, texts, new ArrayList<Ruling>(), 5f, 8f, index);
+
+		List<Float> columns = new ProjectionProfile(textPage, texts, 7.5f, 8f).findColumnPositions(12.5f);
+		assertEquals(2, columns.size());
+		assertTrue(columns.get(0) > 130 && columns.get(0) <= 200);
+		assertTrue(columns.get(1) > 230 && columns.get(1) <= 300);
+
+		List<Float> rows = new ProjectionProfile(textPage, texts, 7.5f, 8f).findRowPositions(8f);
+		assertTrue(rows.size() > 10);
+	}
+
 	@Test
 	public void testGetFirstDeriv() {
 //		float[]
@@ -4,7 +4,9 @@ import static org.junit.Assert.*;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -108,4 +110,101 @@ public class TestRuling {
 
 	}
 
+	@Test
+	public void testFindIntersectionsOnDenseGrid() {
+		List<Ruling> horizontals = new ArrayList<Ruling>();
+		List<Ruling> verticals = new ArrayList<Ruling>();
+		for (int i = 0; i < 100; i++) {
+			horizontals.add(new Ruling(new Point2D.Float(0, i * 10), new Point2D.Float(990, i * 10)));
+			verticals.add(new Ruling(new Point2D.Float(i * 10, 0), new Point2D.Float(i * 10, 990)));
+		}
+
+		Map<Point2D, Ruling[]> intersections = Ruling.findIntersections(horizontals, verticals);
+
+		assertEquals(100 * 100, intersections.size());
+		assertTrue(intersections.containsKey(new Point2D.Float(0, 0)));
+		assertTrue(intersections.containsKey(new Point2D.Float(990, 990)));
+	}
+
+	@Test
+	public void testFindIntersectionsMatchesIntersectionPoint() {
+		List<Ruling> horizontals = Arrays.asList(
+				new Ruling(new Point2D.Float(10, 10), new Point2D.Float(100, 10)),
+				new Ruling(new Point2D.Float(10, 50), new Point2D.Float(60, 50)),
+				new Ruling(new Point2D.Float(70, 50), new Point2D.Float(100, 50)),
+				new Ruling(new Point2D.Float(40, 98), new Point2D.Float(100, 98)));
+		List<Ruling> verticals = Arrays.asList(
+				new Ruling(new Point2D.Float(10, 10), new Point2D.Float(10, 96)),
+				new Ruling(new Point2D.Float(62, 12), new Point2D.Float(62, 100)),
+				new Ruling(new Point2D.Float(100, 60), new Point2D.Float(100, 100)));
+
+		Map<Point2D, Ruling[]> intersections = Ruling.findIntersections(horizontals, verticals);
+
+		int expected = 0;
+		for (Ruling h : horizontals) {
+			for (Ruling v : verticals) {
+				Point2D p = h.intersectionPoint(v);
+				if (p != null) {
+					expected++;
+					assertTrue(intersections.containsKey(p));
+				}
+			}
+		}
+		assertEquals(expected, intersections.size());
+	}
+
+	@Test
+	public void testCollapseOrientedRulingsJoinsDashes() {
+		List<Ruling> dashes = new ArrayList<Ruling>();
+		// out of order, 2pt dashes 1pt apart, and a line 0.5pt below that must stay apart
+		for (int i = 9; i >= 0; i--) {
+			dashes.add(new Ruling(new Point2D.Float(i * 3, 10), new Point2D.Float(i * 3 + 2, 10)));
+		}
+		dashes.add(new Ruling(new Point2D.Float(0, 10.5f), new Point2D.Float(29, 10.5f)));
+
+		List<Ruling> collapsed = Ruling.collapseOrientedRulings(dashes);
+
+		assertEquals(2, collapsed.size());
+		assertEquals(new Ruling(new Point2D.Float(0, 10), new Point2D.Float(29, 10)), collapsed.get(0));
+		assertEquals(new Ruling(new Point2D.Float(0, 10.5f), new Point2D.Float(29, 10.5f)), collapsed.get(1));
+	}
+
+	@Test
+	public void testCollapseOrientedRulingsUsesExpandAmount() {
+		List<Ruling> lines = new ArrayList<Ruling>();
+		lines.add(new Ruling(new Point2D.Float(10, 0), new Point2D.Float(10, 20)));
+		lines.add(new Ruling(new Point2D.Float(10, 24), new Point2D.Float(10, 40)));
+		lines.add(new Ruling(new Point2D.Float(10, 50), new Point2D.Float(10, 60)));
+
+		assertEquals(3, Ruling.collapseOrientedRulings(copies(lines)).size());
+
+		List<Ruling> collapsed = Ruling.collapseOrientedRulings(copies(lines), 2);
+		assertEquals(2, collapsed.size());
+		assertEquals(new Ruling(new Point2D.Float(10, 0), new Point2D.Float(10, 40)), collapsed.get(0));
+
+		assertEquals(1, Ruling.collapseOrientedRulings(copies(lines), 5).size());
+	}
+
+	@Test
+	public void testCollapseOrientedRulingsKeepsDirection() {
+		// a right to left line absorbs a left to right one that starts where it starts, and stays right to left
+		List<Ruling> lines = new ArrayList<Ruling>();
+		lines.add(new Ruling(new Point2D.Float(30, 10), new Point2D.Float(10, 10)));
+		lines.add(new Ruling(new Point2D.Float(30, 10), new Point2D.Float(50, 10)));
+
+		List<Ruling> collapsed = Ruling.collapseOrientedRulings(lines);
+
+		assertEquals(1, collapsed.size());
+		assertEquals(50f, collapsed.get(0).getStart(), 1e-5);
+		assertEquals(10f, collapsed.get(0).getEnd(), 1e-5);
+	}
+
+	private static List<Ruling> copies(List<Ruling> rulings) {
+		List<Ruling> rv = new ArrayList<Ruling>();
+		for (Ruling r : rulings) {
+			rv.add((Ruling) r.clone());
+		}
+		return rv;
+	}
+
 }
@@ -0,0 +1,128 @@
+package technology.tabula;
+
+import static org.junit.Assert.*;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestRulingIntersections {
+
+    private static final List<Ruling> HORIZONTALS = Arrays.asList(
+            new Ruling(new Point2D.Float(10, 10), new Point2D.Float(100, 10)),
+            new Ruling(new Point2D.Float(10, 50), new Point2D.Float(100, 50)),
+            new Ruling(new Point2D.Float(10, 90), new Point2D.Float(55, 90)));
+
+    private static final List<Ruling> VERTICALS = Arrays.asList(
+            new Ruling(new Point2D.Float(10, 10), new Point2D.Float(10, 90)),
+            new Ruling(new Point2D.Float(57, 10), new Point2D.Float(57, 90)),
+            new Ruling(new Point2D.Float(100, 10), new Point2D.Float(100, 50)));
+
+    @Test
+    public void testSameIntersectionsAsFindIntersections() {
+        RulingIntersections intersections = new RulingIntersections(HORIZONTALS, VERTICALS);
+        Map<Point2D, Ruling[]> expected = Ruling.findIntersections(HORIZONTALS, VERTICALS);
+
+        assertEquals(expected.size(), intersections.size());
+        for (int i = 0; i < intersections.size(); i++) {
+            assertTrue(expected.containsKey(intersections.getPoint(i)));
+        }
+    }
+
+    @Test
+    public void testCollinearHorizontalsAsFindIntersections() {
+        // the second horizontal starts while the first, at the same y, is active, and is
+        // ignored by Ruling.findIntersections: the vertical at 150 crosses neither
+        List<Ruling> horizontals = Arrays.asList(
+                new Ruling(new Point2D.Float(10, 10), new Point2D.Float(100, 10)),
+                new Ruling(new Point2D.Float(50, 10), new Point2D.Float(200, 10)),
+                new Ruling(new Point2D.Float(10, 90), new Point2D.Float(200, 90)));
+        List<Ruling> verticals = Arrays.asList(
+                new Ruling(new Point2D.Float(10, 10), new Point2D.Float(10, 90)),
+                new Ruling(new Point2D.Float(150, 10), new Point2D.Float(150, 90)));
+
+        RulingIntersections intersections = new RulingIntersections(horizontals, verticals);
+        Map<Point2D, Ruling[]> expected = Ruling.findIntersections(horizontals, verticals);
+        assertEquals(3, expected.size());
+        assertEquals(expected.size(), intersections.size());
+        for (int i = 0; i < intersections.size(); i++) {
+            assertTrue(expected.containsKey(intersections.getPoint(i)));
+        }
+        assertEquals(-1, intersections.indexOf(150, 10));
+    }
+
+    @Test
+    public void testVerticalsAtTheEndsOfHorizontals() {
+        // the horizontal spans 8 to 102 once expanded: it starts before the vertical at 8 and
+        // ends after the one at 102, which both cross it
+        List<Ruling> horizontals = Arrays.asList(new Ruling(new Point2D.Float(10, 10), new Point2D.Float(100, 10)));
+        List<Ruling> verticals = Arrays.asList(
+                new Ruling(new Point2D.Float(8, 0), new Point2D.Float(8, 20)),
+                new Ruling(new Point2D.Float(102, 0), new Point2D.Float(102, 20)));
+
+        RulingIntersections intersections = new RulingIntersections(horizontals, verticals);
+        assertEquals(2, Ruling.findIntersections(horizontals, verticals).size());
+        assertEquals(2, intersections.size());
+        assertEquals(0, intersections.getVerticalIndex(intersections.indexOf(8, 10)));
+        assertEquals(1, intersections.getVerticalIndex(intersections.indexOf(102, 10)));
+    }
+
+    @Test
+    public void testIntersectionsReferToRulingsByIndex() {
+        RulingIntersections intersections = new RulingIntersections(HORIZONTALS, VERTICALS);
+
+        // (57, 90) is within the expansion amount of the third horizontal ruling
+        int i = intersections.indexOf(57, 90);
+        assertTrue(i != -1);
+        assertEquals(2, intersections.getHorizontalIndex(i));
+        assertEquals(1, intersections.getVerticalIndex(i));
+        assertSame(HORIZONTALS.get(2), intersections.getHorizontal(i));
+        assertSame(VERTICALS.get(1), intersections.getVertical(i));
+
+        assertEquals(-1, intersections.indexOf(100, 90));
+    }
+
+    @Test
+    public void testRowsAndColumns() {
+        RulingIntersections intersections = new RulingIntersections(HORIZONTALS, VERTICALS);
+        int[] order = intersections.rowMajorOrder();
+        assertEquals(8, order.length);
+
+        int topLeft = order[0];
+        assertEquals(10f, intersections.getX(topLeft), 1e-5);
+        assertEquals(10f, intersections.getY(topLeft), 1e-5);
+
+        int right = intersections.nextInRow(topLeft);
+        assertEquals(57f, intersections.getX(right), 1e-5);
+        assertTrue(intersections.sameHorizontal(topLeft, right));
+
+        int below = intersections.nextInColumn(topLeft);
+        assertEquals(50f, intersections.getY(below), 1e-5);
+        assertTrue(intersections.sameVertical(topLeft, below));
+        assertFalse(intersections.sameHorizontal(topLeft, below));
+
+        assertEquals(-1, intersections.nextInRow(intersections.indexOf(100, 10)));
+        assertEquals(-1, intersections.nextInColumn(intersections.indexOf(10, 90)));
+    }
+
+    @Test
+    public void testLongIntHashMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = -500; i < 500; i++) {
+            assertEquals(-1, map.put(LongIntHashMap.pack(i, -i), i, -1));
+        }
+        assertEquals(1000, map.size());
+        assertEquals(42, map.get(LongIntHashMap.pack(42, -42), -1));
+        assertEquals(-1, map.get(LongIntHashMap.pack(42, 42), -1));
+        assertEquals(42, map.put(LongIntHashMap.pack(42, -42), 0, -1));
+        assertEquals(1000, map.size());
+
+        assertTrue(LongIntHashMap.pack(-1, 5) < LongIntHashMap.pack(0, -5));
+        assertTrue(LongIntHashMap.pack(0, -5) < LongIntHashMap.pack(0, 5));
+        assertEquals(-7, LongIntHashMap.unpackHigh(LongIntHashMap.pack(-7, 3)));
+        assertEquals(3, LongIntHashMap.unpackLow(LongIntHashMap.pack(-7, 3)));
+    }
+}
@@ -4,10 +4,16 @@ import static org.junit.Assert.*;
 
 import java.awt.geom.Point2D;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
@@ -17,6 +23,7 @@ import technology.tabula.Cell;
 import technology.tabula.Page;
 import technology.tabula.Rectangle;
 import technology.tabula.Ruling;
+import technology.tabula.TextElement;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 import technology.tabula.writers.CSVWriter;
 import technology.tabula.UtilsForTesting;
@@ -292,6 +299,145 @@ public class TestSpreadsheetExtractor {
         assertTrue(foundRectangles.equals(expected));
     }
     
+    @Test
+    public void testGroupCellsIntoSpreadsheets() {
+        List<? extends Rectangle> cells = Arrays.asList(CELLS);
+        List<Rectangle> expected = Arrays.asList(EXPECTED_RECTANGLES);
+        Collections.sort(expected);
+        List<Rectangle> foundRectangles = SpreadsheetExtractionAlgorithm.groupCellsIntoSpreadsheets(cells);
+        Collections.sort(foundRectangles);
+        assertEquals(expected, foundRectangles);
+    }
+
+    @Test
+    public void testGroupCellsIntoSpreadsheetsJoinsOnPartialEdges() {
+        // the bottom cell spans both top cells, the cell on the right only touches at a corner
+        List<Cell> cells = Arrays.asList(
+                new Cell(10f, 10f, 20f, 10f),
+                new Cell(10f, 30f, 20f, 10f),
+                new Cell(20f, 10f, 40f, 10f),
+                new Cell(30f, 50f, 20f, 10f),
+                new Cell(10f, 30f, 20f, 10f));
+        List<Rectangle> foundRectangles = SpreadsheetExtractionAlgorithm.groupCellsIntoSpreadsheets(cells);
+        assertEquals(2, foundRectangles.size());
+        assertEquals(new Rectangle(10f, 10f, 40f, 20f), foundRectangles.get(0));
+        assertEquals(new Rectangle(30f, 50f, 20f, 10f), foundRectangles.get(1));
+    }
+
+    @Test
+    public void testAssignTextToCellsKeepsTextOrder() {
+        Random random = new Random(42);
+        List<Cell> cells = new ArrayList<Cell>();
+        for (int i = 0; i < 20; i++) {
+            int j = 0;
+            while (j < 10) {
+                int span = Math.min(10 - j, 1 + random.nextInt(3));
+                cells.add(new Cell(i * 10f, j * 20f, span * 20f, 10f));
+                j += span;
+            }
+        }
+        // a cell overlapping others, and a duplicate
+        cells.add(new Cell(15f, 30f, 50f, 30f));
+        cells.add(new Cell(cells.get(0).getTop(), cells.get(0).getLeft(), (float) cells.get(0).getWidth(), (float) cells.get(0).getHeight()));
+
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int k = 0; k < 2000; k++) {
+            // some of them on cell edges, some of them across cells, and some of them
+            // on top of each other, which Utils.sort leaves in the order it gets them in
+            float top = random.nextInt(800) / 4f, left = random.nextInt(800) / 4f;
+            float width = 1 + random.nextInt(16) / 2f, height = 2 + random.nextInt(8) / 2f;
+            texts.add(new TextElement(top, left, width, height, null, 10f, "a", 2f));
+            if (k % 10 == 0) {
+                texts.add(new TextElement(top, left, width, height, null, 10f, "b", 2f));
+            }
+        }
+
+        List<List<TextElement>> assigned = SpreadsheetExtractionAlgorithm.assignTextToCells(texts, cells);
+        assertEquals(cells.size(), assigned.size());
+        for (int i = 0; i < cells.size(); i++) {
+            // the texts the cell contains, with bounds rounded to floats as in RectangleSpatialIndex,
+            // in their order in texts, then sorted
+            Cell c = cells.get(i);
+            List<TextElement> expected = new ArrayList<TextElement>();
+            for (TextElement te : texts) {
+                if ((float) c.getX() <= (float) te.getX() && (float) c.getY() <= (float) te.getY()
+                        && (float) (te.getX() + te.getWidth()) <= (float) (c.getX() + c.getWidth())
+                        && (float) (te.getY() + te.getHeight()) <= (float) (c.getY() + c.getHeight())) {
+                    expected.add(te);
+                }
+            }
+            Utils.sort(expected);
+            assertEquals(expected, assigned.get(i));
+        }
+    }
+
+    @Test
+    public void testParallelExtractionMatchesSequential() throws IOException {
+        Page page = gridPage(40, 10);
+        SpreadsheetExtractionAlgorithm sequential = new SpreadsheetExtractionAlgorithm();
+        SpreadsheetExtractionAlgorithm parallel = new SpreadsheetExtractionAlgorithm();
+        parallel.setParallelism(4);
+
+        StringBuilder expected = new StringBuilder();
+        (new JSONWriter()).write(expected, (List<Table>) sequential.extract(page));
+        // twice, the second time on the threads of the first
+        for (int i = 0; i < 2; i++) {
+            StringBuilder sb = new StringBuilder();
+            (new JSONWriter()).write(sb, (List<Table>) parallel.extract(page));
+            assertEquals(expected.toString(), sb.toString());
+        }
+    }
+
+    @Test
+    public void testParallelExtractionOnCallersExecutor() throws IOException {
+        Page page = gridPage(40, 10);
+        final AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                threads.incrementAndGet();
+                return new Thread(r);
+            }
+        });
+        try {
+            SpreadsheetExtractionAlgorithm sequential = new SpreadsheetExtractionAlgorithm();
+            SpreadsheetExtractionAlgorithm parallel = new SpreadsheetExtractionAlgorithm();
+            parallel.setParallelism(2);
+            parallel.setExecutor(executor);
+
+            StringBuilder expected = new StringBuilder();
+            (new JSONWriter()).write(expected, (List<Table>) sequential.extract(page));
+            StringBuilder sb = new StringBuilder();
+            (new JSONWriter()).write(sb, (List<Table>) parallel.extract(page));
+            assertEquals(expected.toString(), sb.toString());
+            assertTrue(threads.get() > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // a page with a ruled grid of rows x cols cells, with a word in each one: enough cells
+    // to merge their text on several threads
+    private static Page gridPage(int rows, int cols) {
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        for (int i = 0; i <= rows; i++) {
+            rulings.add(new Ruling(new Point2D.Float(20, 20 + i * 15), new Point2D.Float(20 + cols * 50, 20 + i * 15)));
+        }
+        for (int j = 0; j <= cols; j++) {
+            rulings.add(new Ruling(new Point2D.Float(20 + j * 50, 20), new Point2D.Float(20 + j * 50, 20 + rows * 15)));
+        }
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                String word = i + "-" + j;
+                for (int k = 0; k < word.length(); k++) {
+                    texts.add(new TextElement(23 + i * 15, 25 + j * 50 + k * 5, 5f, 8f, null, 8f, word.substring(k, k + 1), 2.5f));
+                }
+            }
+        }
+        return UtilsForTesting.makePage(texts, rulings);
+    }
+
     // TODO Add assertions
     @Test
     public void testSpreadsheetExtraction() throws IOException {
@@ -3,6 +3,8 @@ package technology.tabula;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -24,4 +26,104 @@ public class TestStraightEdgeDetector {
       assertEquals(269f, bestEdges.get(1).floatValue(), 1f);
       assertEquals(392f, bestEdges.get(2).floatValue(), 1f);
     }
+
+    // lines of two words of varying lengths, left aligned at left and at secondLeft
+    private static Page makePage(float left, float secondLeft, int lines) {
+      List<TextElement> texts = new ArrayList<TextElement>();
+      for (int i = 0; i < lines; i++) {
+        for (int k = 0; k < 4; k++) {
+          texts.add(new TextElement(100 + i * 12, left + k * 5, 5f, 8f, null, 8f, "a", 5f));
+        }
+        for (int k = 0; k < 2 + i % 4; k++) {
+          texts.add(new TextElement(100 + i * 12, secondLeft + k * 5, 5f, 8f, null, 8f, "b", 5f));
+        }
+      }
+      return UtilsForTesting.makePage(texts);
+    }
+
+    @Test
+    public void testCountsNearlyEqualEdgesAsOne() {
+      StraightEdgeDetector detector = new StraightEdgeDetector();
+      detector.countEdge(57f);
+      detector.countEdge(57.001f);
+      detector.countEdge(56.999f);
+      detector.countEdge(120f);
+      assertEquals(2, detector.distinctEdges());
+      List<Float> edges = detector.significantEdgePositions(0);
+      assertEquals(1, edges.size());
+      assertEquals(57f, edges.get(0).floatValue(), 1e-4);
+    }
+
+    @Test
+    public void testCountsEdgesFarApart() {
+      // stray text far off the page, on both sides
+      StraightEdgeDetector detector = new StraightEdgeDetector();
+      for (float edge : new float[] { 1e8f, 57f, -1e8f, 57f, 1e8f, -1e8f }) {
+        detector.countEdge(edge);
+      }
+      assertEquals(3, detector.distinctEdges());
+      assertEquals(Arrays.asList(-1e8f, 57f, 1e8f), detector.significantEdgePositions(0));
+    }
+
+    @Test
+    public void testReportsEdgesWhereTheTextIs() {
+      StraightEdgeDetector detector = new StraightEdgeDetector();
+      // in the bucket around 100.5
+      detector.countEdge(100.26f);
+      detector.countEdge(100.4f);
+      detector.countEdge(100.74f);
+
+      // nudged clear of all the edges counted, not from the middle of the bucket
+      assertEquals(100.16f, detector.significantEdgePositions(-0.1f).get(0).floatValue(), 1e-4);
+      assertEquals(100.84f, detector.significantEdgePositions(0.1f).get(0).floatValue(), 1e-4);
+      assertEquals(100.46667f, detector.significantEdgePositions(0).get(0).floatValue(), 1e-4);
+    }
+
+    @Test
+    public void testDocumentEdges() {
+      // the second page has too few lines to tell aligned edges from ragged ones on its own,
+      // and its text is a rounding error off the first page's
+      Page first = makePage(50, 300, 8);
+      Page second = makePage(50.0001f, 300, 1);
+      assertFalse(StraightEdgeDetector.getBestPageEdges(second, 0).equals(StraightEdgeDetector.getBestPageEdges(first, 0)));
+
+      List<Float> edges = StraightEdgeDetector.getBestDocumentEdges(Arrays.asList(first, second), 0);
+      // the same edges as the first page's, where the text of both pages is
+      assertEquals(StraightEdgeDetector.getBestPageEdges(first, 0).size(), edges.size());
+      assertEquals(2, edges.size());
+      assertEquals(50f, edges.get(0).floatValue(), 1e-3);
+      assertEquals(300f, edges.get(1).floatValue(), 1e-3);
+    }
+
+    @Test
+    public void testReportsEdgesWhereTheTextOfAPageIs() throws IOException {
+      // the columns of straight-edges.pdf start at 56.8, 269.8 and 392.1, off the histogram's buckets
+      Page page = UtilsForTesting.getPage("src/test/resources/technology/tabula/straight-edges.pdf", 1);
+      List<Float> edges = StraightEdgeDetector.getBestPageEdges(page, 0);
+      assertEquals(3, edges.size());
+      assertEquals(56.8f, edges.get(0).floatValue(), 1e-3);
+      assertEquals(269.8f, edges.get(1).floatValue(), 1e-3);
+      assertEquals(392.1f, edges.get(2).floatValue(), 1e-3);
+
+      // nudged left of the text
+      edges = StraightEdgeDetector.getBestPageEdges(page);
+      assertEquals(56.7f, edges.get(0).floatValue(), 1e-3);
+      assertEquals(269.7f, edges.get(1).floatValue(), 1e-3);
+      assertEquals(392f, edges.get(2).floatValue(), 1e-3);
+    }
+
+    @Test
+    public void testDocumentEdgesOfARealDocument() throws IOException {
+      List<Page> pages = new ArrayList<Page>();
+      for (int i = 1; i <= 4; i++) {
+        pages.add(UtilsForTesting.getPage("src/test/resources/technology/tabula/mednine.pdf", i));
+      }
+      assertEquals(StraightEdgeDetector.getBestPageEdges(pages.get(0)),
+          StraightEdgeDetector.getBestDocumentEdges(pages.subList(0, 1)));
+
+      // only the second page is left aligned on its own, but the left edges of all pages are straighter
+      List<Float> edges = StraightEdgeDetector.getBestDocumentEdges(pages);
+      assertEquals(13, edges.size());
+      assertTrue(edges.containsAll(StraightEdgeDetector.getBestPageEdges(pages.get(1))));
+    }
 }
@@ -0,0 +1,64 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestTableWithRulingLines {
+
+    private static TableWithRulingLines makeTable(Cell... cells) {
+        List<Cell> cellList = new ArrayList<Cell>(Arrays.asList(cells));
+        return new TableWithRulingLines(Utils.bounds(cellList), null, cellList,
+                new ArrayList<Ruling>(), new ArrayList<Ruling>());
+    }
+
+    @Test
+    public void testGrid() {
+        List<Cell> cells = new ArrayList<Cell>();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 5; j++) {
+                cells.add(new Cell(i * 10f, j * 30f, 30f, 10f));
+            }
+        }
+        TableWithRulingLines table = makeTable(cells.toArray(new Cell[0]));
+        assertEquals(20, table.getRows().size());
+        assertEquals(5, table.getCols().size());
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertSame(cells.get(i * 5 + j), table.getCell(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testCellSpanningColumns() {
+        Cell a = new Cell(0f, 0f, 20f, 10f), b = new Cell(0f, 20f, 10f, 10f);
+        Cell c = new Cell(10f, 0f, 10f, 10f), d = new Cell(10f, 10f, 10f, 10f), e = new Cell(10f, 20f, 10f, 10f);
+        TableWithRulingLines table = makeTable(a, b, c, d, e);
+        assertSame(a, table.getCell(0, 0));
+        assertSame(b, table.getCell(0, 1));
+        assertSame(c, table.getCell(1, 0));
+        assertSame(d, table.getCell(1, 1));
+        assertSame(e, table.getCell(1, 2));
+    }
+
+    @Test
+    public void testCellSpanningRows() {
+        // a takes the first column of the first two rows,
+        // so the second row starts at the second column
+        Cell a = new Cell(0f, 0f, 10f, 20f), b = new Cell(0f, 10f, 10f, 10f), c = new Cell(0f, 20f, 10f, 10f);
+        Cell d = new Cell(10f, 10f, 10f, 10f), e = new Cell(10f, 20f, 10f, 10f);
+        Cell f = new Cell(20f, 0f, 10f, 10f), g = new Cell(20f, 10f, 10f, 10f), h = new Cell(20f, 20f, 10f, 10f);
+        TableWithRulingLines table = makeTable(a, b, c, d, e, f, g, h);
+        assertSame(a, table.getCell(0, 0));
+        assertSame(d, table.getCell(1, 1));
+        assertSame(e, table.getCell(1, 2));
+        assertSame(f, table.getCell(2, 0));
+        assertSame(h, table.getCell(2, 2));
+    }
+}
@@ -0,0 +1,135 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Test;
+
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+import technology.tabula.extractors.TabularityClassifier;
+
+public class TestTabularityClassifier {
+
+    // a word of 3 glyphs at (top, left)
+    private static void addWord(List<TextElement> texts, float top, float left) {
+        for (int k = 0; k < 3; k++) {
+            texts.add(new TextElement(top, left + k * 5f, 5f, 8f, null, 8f, String.valueOf((char) ('a' + k)), 2.5f));
+        }
+    }
+
+    @Test
+    public void testRuledGridIsTabular() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        for (int i = 0; i <= 6; i++) {
+            rulings.add(new Ruling(new Point2D.Float(100, 100 + i * 20), new Point2D.Float(500, 100 + i * 20)));
+        }
+        for (int j = 0; j <= 4; j++) {
+            rulings.add(new Ruling(new Point2D.Float(100 + j * 100, 100), new Point2D.Float(100 + j * 100, 220)));
+        }
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 4; j++) {
+                addWord(texts, 105 + i * 20, 110 + j * 100);
+            }
+        }
+        Page page = UtilsForTesting.makePage(texts, rulings);
+
+        assertTrue(SpreadsheetExtractionAlgorithm.isPageTabular(page));
+        assertTrue(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testUnruledTextIsNotTabular() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 6; j++) {
+                addWord(texts, 100 + i * 12, 100 + j * 20);
+            }
+        }
+        Page page = UtilsForTesting.makePage(texts, new ArrayList<Ruling>());
+
+        assertFalse(SpreadsheetExtractionAlgorithm.isPageTabular(page));
+        assertFalse(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testUnderlinedTextIsNotTabular() {
+        List<TextElement> texts = new ArrayList<TextElement>();
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 6; j++) {
+                addWord(texts, 100 + i * 12, 100 + j * 20);
+            }
+        }
+        rulings.add(new Ruling(new Point2D.Float(100, 109), new Point2D.Float(215, 109)));
+        Page page = UtilsForTesting.makePage(texts, rulings);
+
+        assertFalse(SpreadsheetExtractionAlgorithm.isPageTabular(page));
+        assertFalse(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testPageWithoutTextIsNotTabular() {
+        Page page = UtilsForTesting.makePage(new ArrayList<TextElement>());
+        assertFalse(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testSpreadsheetWithNoBoundingFrameIsTabular() throws IOException {
+        Page page = UtilsForTesting.getAreaFromPage("src/test/resources/technology/tabula/spreadsheet_no_bounding_frame.pdf", 1,
+                150.56f, 58.9f, 654.7f, 536.12f);
+        assertEquals(SpreadsheetExtractionAlgorithm.isPageTabular(page), TabularityClassifier.isTabular(page));
+        assertTrue(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testSpanningCellsAreaIsTabular() throws IOException {
+        // the area of TestCommandLineApp.testExtractJSONWithArea, which must be extracted as a spreadsheet
+        Page page = UtilsForTesting.getAreaFromPage("src/test/resources/technology/tabula/spanning_cells.pdf", 1,
+                150.56f, 58.9f, 654.7f, 536.12f);
+        assertTrue(SpreadsheetExtractionAlgorithm.isPageTabular(page));
+        assertTrue(TabularityClassifier.isTabular(page));
+    }
+
+    @Test
+    public void testAgreesWithIsPageTabularOnEveryTestPage() throws IOException {
+        File[] pdfs = new File("src/test/resources/technology/tabula").listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".pdf") && !name.equals("encrypted.pdf");
+            }
+        });
+        Arrays.sort(pdfs);
+
+        int pages = 0;
+        for (File pdf : pdfs) {
+            PDDocument document = PDDocument.load(pdf.getPath());
+            ObjectExtractor oe = new ObjectExtractor(document);
+            try {
+                PageIterator iter = oe.extract();
+                while (iter.hasNext()) {
+                    Page page = iter.next();
+                    if (page.getText().isEmpty()) {
+                        continue;
+                    }
+                    assertEquals(pdf.getName() + " page " + page.getPageNumber(),
+                            SpreadsheetExtractionAlgorithm.isPageTabular(page), TabularityClassifier.isTabular(page));
+                    pages++;
+                }
+            } finally {
+                oe.close();
+            }
+        }
+        assertTrue(pages > 0);
+    }
+}
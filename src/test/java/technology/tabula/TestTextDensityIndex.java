@@ -0,0 +1,88 @@
+package technology.tabula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestTextDensityIndex {
+
+    private static Page makePage(TextElement... texts) {
+        return UtilsForTesting.makePage(100, 100, new ArrayList<TextElement>(Arrays.asList(texts)), new ArrayList<Ruling>(), new ArrayList<Rectangle>());
+    }
+
+    private static TextElement glyph(float top, float left, float width, float height, String text) {
+        return new TextElement(top, left, width, height, null, 8f, text, width);
+    }
+
+    @Test
+    public void testCoverageOfWholeCells() {
+        TextDensityIndex index = new TextDensityIndex(new Rectangle(0, 0, 100, 100),
+                Arrays.asList(glyph(10, 10, 5, 8, "a"), glyph(10, 16, 5, 8, "b"), glyph(50, 50, 3, 3, "c")), 2f);
+
+        assertEquals(80f, index.getCoverage(new Rectangle(10, 10, 12, 8)), 1e-6);
+        assertEquals(89f, index.getCoverage(new Rectangle(0, 0, 100, 100)), 1e-6);
+        assertEquals(0f, index.getCoverage(new Rectangle(20, 20, 20, 20)), 1e-6);
+        assertEquals(80f / 96f, index.getDensity(new Rectangle(10, 10, 12, 8)), 1e-6);
+        // clamped to the page
+        assertEquals(89f, index.getCoverage(new Rectangle(-50, -50, 300, 300)), 1e-6);
+    }
+
+    @Test
+    public void testCoverageOfPartsOfCells() {
+        // one glyph filling one 4x4 cell
+        TextDensityIndex index = new TextDensityIndex(new Rectangle(0, 0, 100, 100),
+                Arrays.asList(glyph(8, 8, 4, 4, "a")), 4f);
+
+        assertEquals(16f, index.getCoverage(new Rectangle(8, 8, 4, 4)), 1e-6);
+        assertEquals(8f, index.getCoverage(new Rectangle(8, 8, 2, 4)), 1e-6);
+        assertEquals(4f, index.getCoverage(new Rectangle(10, 10, 10, 10)), 1e-6);
+    }
+
+    @Test
+    public void testIgnoresWhiteSpace() {
+        TextDensityIndex index = new TextDensityIndex(new Rectangle(0, 0, 100, 100),
+                Arrays.asList(glyph(10, 10, 5, 8, " ")), 2f);
+        assertEquals(0f, index.getCoverage(new Rectangle(0, 0, 100, 100)), 1e-6);
+        assertFalse(index.mayHaveText(new Rectangle(0, 0, 100, 100)));
+    }
+
+    @Test
+    public void testHasTextInsideAndMayHaveText() {
+        TextDensityIndex index = new TextDensityIndex(new Rectangle(0, 0, 100, 100),
+                Arrays.asList(glyph(10, 10, 1, 1, "a")), 4f);
+
+        // the glyph's cell is entirely in the area
+        assertTrue(index.hasTextInside(new Rectangle(7, 7, 6, 6)));
+        assertTrue(index.mayHaveText(new Rectangle(7, 7, 6, 6)));
+
+        // the area is in the glyph's cell, but misses the glyph
+        List<Rectangle> misses = Arrays.asList(new Rectangle(8.5f, 8.5f, 1, 1), new Rectangle(11.5f, 11.5f, 0.4f, 0.4f));
+        for (Rectangle miss : misses) {
+            assertFalse(index.hasTextInside(miss));
+            assertTrue(index.mayHaveText(miss));
+        }
+
+        assertFalse(index.mayHaveText(new Rectangle(20, 20, 10, 10)));
+        assertFalse(index.mayHaveText(new Rectangle(200, 200, 10, 10)));
+    }
+
+    @Test
+    public void testPageBuildsIndexOnce() {
+        Page page = makePage(glyph(10, 10, 5, 8, "a"));
+        TextDensityIndex index = page.getTextDensityIndex();
+        assertSame(index, page.getTextDensityIndex());
+        assertEquals(TextDensityIndex.DEFAULT_CELL_SIZE, index.getCellSize(), 0);
+
+        TextDensityIndex finer = page.getTextDensityIndex(0.5f);
+        assertEquals(0.5f, finer.getCellSize(), 0);
+        assertSame(finer, page.getTextDensityIndex());
+        assertEquals(40f / 10000f, page.getTextDensity(page), 1e-6);
+    }
+}
@@ -116,4 +116,48 @@ public class TestUtils {
     	assertEquals(expectedNumbers, numbers);
     }
 
+    @Test
+    public void testSnap() {
+        float[] values = { 10f, 0f, 10.5f, 1f, 30f, 11.5f };
+        Utils.snap(values, 2f);
+        // 11.5 is within 2 of 10, the first value of its group, 30 is the last one and isn't moved
+        assertArrayEquals(new float[] { 32f / 3, 0.5f, 32f / 3, 0.5f, 30f, 32f / 3 }, values, 1e-5f);
+    }
+
+    @Test
+    public void testSnapPointsLeavesTheLastPoint() {
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        rulings.add(new Ruling(new Point2D.Float(10, 10), new Point2D.Float(10, 100)));
+        rulings.add(new Ruling(new Point2D.Float(11, 100), new Point2D.Float(11, 201)));
+        Utils.snapPoints(rulings, 2f, 2f);
+
+        // the last x, the end of the second ruling, isn't moved nor averaged with the others
+        assertEquals(31f / 3, rulings.get(0).x1, 1e-5);
+        assertEquals(31f / 3, rulings.get(0).x2, 1e-5);
+        assertEquals(31f / 3, rulings.get(1).x1, 1e-5);
+        assertEquals(11f, rulings.get(1).x2, 1e-5);
+        assertEquals(10f, rulings.get(0).y1, 1e-5);
+        assertEquals(100f, rulings.get(0).y2, 1e-5);
+        assertEquals(100f, rulings.get(1).y1, 1e-5);
+        assertEquals(201f, rulings.get(1).y2, 1e-5);
+    }
+
+    @Test
+    public void testSnapPointsTakesPointsWithTheSameYInXOrder() {
+        List<Ruling> rulings = new ArrayList<Ruling>();
+        rulings.add(new Ruling(new Point2D.Float(100, 10), new Point2D.Float(100, 199)));
+        // drawn right to left
+        rulings.add(new Ruling(new Point2D.Float(300, 200), new Point2D.Float(100, 200)));
+        Utils.snapPoints(rulings, 2f, 2f);
+
+        // the right end is the last point along y, and isn't moved
+        assertEquals(199.5f, rulings.get(0).y2, 1e-5);
+        assertEquals(200f, rulings.get(1).y1, 1e-5);
+        assertEquals(199.5f, rulings.get(1).y2, 1e-5);
+    }
+
+    @Test
+    public void testSnapPointsOfNoRulings() {
+        Utils.snapPoints(new ArrayList<Ruling>(), 2f, 2f);
+    }
 }
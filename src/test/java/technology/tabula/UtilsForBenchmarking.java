@@ -0,0 +1,78 @@
+package technology.tabula;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for the Benchmark* classes. These are plain main() programs, not part of
+ * the surefire run; execute them with e.g.
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=technology.tabula.BenchmarkRuling
+ */
+public class UtilsForBenchmarking {
+
+    public static final int WARMUP_ITERATIONS = 50;
+    public static final int MEASURED_ITERATIONS = 20;
+
+    public interface Benchmark {
+        void run();
+    }
+
+    /**
+     * Runs benchmark a few times to warm up the JIT, then prints and returns the
+     * average wall clock time of an iteration, in milliseconds
+     */
+    public static double time(String name, Benchmark benchmark) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        double rv = (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+        System.out.println(String.format("%-50s %10.3f ms/op", name, rv));
+        return rv;
+    }
+
+    /**
+     * Horizontal rulings of a ruled grid of rows x cols cells, each cell being cellSize wide and tall
+     */
+    public static List<Ruling> gridHorizontals(int rows, int cols, float cellSize) {
+        List<Ruling> rv = new ArrayList<Ruling>(rows + 1);
+        for (int i = 0; i <= rows; i++) {
+            rv.add(new Ruling(new Point2D.Float(0, i * cellSize), new Point2D.Float(cols * cellSize, i * cellSize)));
+        }
+        return rv;
+    }
+
+    /**
+     * Vertical rulings of a ruled grid of rows x cols cells, each cell being cellSize wide and tall
+     */
+    public static List<Ruling> gridVerticals(int rows, int cols, float cellSize) {
+        List<Ruling> rv = new ArrayList<Ruling>(cols + 1);
+        for (int i = 0; i <= cols; i++) {
+            rv.add(new Ruling(new Point2D.Float(i * cellSize, 0), new Point2D.Float(i * cellSize, rows * cellSize)));
+        }
+        return rv;
+    }
+
+    /**
+     * rulings cut into dashes dashLength long, gapLength apart, as drawn by spreadsheet
+     * programs for dotted and dashed borders
+     */
+    public static List<Ruling> dashed(List<Ruling> rulings, float dashLength, float gapLength) {
+        List<Ruling> rv = new ArrayList<Ruling>();
+        for (Ruling r : rulings) {
+            boolean vertical = r.vertical();
+            for (float start = r.getStart(); start < r.getEnd(); start += dashLength + gapLength) {
+                float end = Math.min(start + dashLength, r.getEnd());
+                rv.add(vertical ?
+                        new Ruling(new Point2D.Float(r.getPosition(), start), new Point2D.Float(r.getPosition(), end)) :
+                        new Ruling(new Point2D.Float(start, r.getPosition()), new Point2D.Float(end, r.getPosition())));
+            }
+        }
+        return rv;
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.csv.CSVFormat;
@@ -35,6 +36,33 @@ public class UtilsForTesting {
         }
     }
     
+    /**
+     * A letter sized page without a PDPage, as ObjectExtractor would make it from texts, rulings
+     * and imageAreas, for tests that don't need a PDF
+     */
+    public static Page makePage(List<TextElement> texts, List<Ruling> rulings, List<Rectangle> imageAreas) {
+        return makePage(612, 792, texts, rulings, imageAreas);
+    }
+
+    public static Page makePage(List<TextElement> texts, List<Ruling> rulings) {
+        return makePage(texts, rulings, new ArrayList<Rectangle>());
+    }
+
+    public static Page makePage(List<TextElement> texts) {
+        return makePage(texts, new ArrayList<Ruling>());
+    }
+
+    public static Page makePage(float width, float height, List<TextElement> texts, List<Ruling> rulings, List<Rectangle> imageAreas) {
+        RectangleSpatialIndex<TextElement> index = new RectangleSpatialIndex<TextElement>();
+        float minCharWidth = Float.MAX_VALUE, minCharHeight = Float.MAX_VALUE;
+        for (TextElement te : texts) {
+            index.add(te);
+            minCharWidth = (float) Math.min(minCharWidth, te.getWidth());
+            minCharHeight = (float) Math.min(minCharHeight, te.getHeight());
+        }
+        return new Page(0, 0, width, height, 0, 1, null, texts, rulings, minCharWidth, minCharHeight, index, imageAreas);
+    }
+
     public static void assertTableEquals(Table table, String[][] arrayOfRows) {
         List<List<RectangularTextContainer>> tableRows = table.getRows();
         assertEquals(arrayOfRows.length, tableRows.size());